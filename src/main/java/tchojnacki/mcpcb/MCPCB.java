@@ -1,9 +1,11 @@
 package tchojnacki.mcpcb;
 
+import com.mojang.logging.LogUtils;
 import net.minecraft.world.item.CreativeModeTab;
 import net.minecraftforge.api.distmarker.Dist;
 import net.minecraftforge.fml.DistExecutor;
 import net.minecraftforge.fml.common.Mod;
+import org.slf4j.Logger;
 import tchojnacki.mcpcb.common.groups.CircuitGroup;
 import tchojnacki.mcpcb.common.groups.MainGroup;
 import tchojnacki.mcpcb.util.ClientRegistration;
@@ -21,6 +23,8 @@ import tchojnacki.mcpcb.util.Registration;
 public class MCPCB {
     public static final String MOD_ID = "mcpcb";
 
+    public static final Logger LOGGER = LogUtils.getLogger();
+
     public static final CreativeModeTab MAIN_GROUP = new MainGroup();
     public static final CreativeModeTab CIRCUIT_GROUP = new CircuitGroup();
 
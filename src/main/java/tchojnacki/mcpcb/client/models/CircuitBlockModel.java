@@ -1,6 +1,7 @@
 package tchojnacki.mcpcb.client.models;
 
-import com.google.common.collect.ImmutableMap;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import net.minecraft.MethodsReturnNonnullByDefault;
 import net.minecraft.client.renderer.block.model.BakedQuad;
 import net.minecraft.client.resources.model.BakedModel;
@@ -22,10 +23,10 @@ import tchojnacki.mcpcb.common.block.CircuitBlock;
 import tchojnacki.mcpcb.common.block.entities.CircuitBlockEntity;
 import tchojnacki.mcpcb.logic.KnownTable;
 import tchojnacki.mcpcb.logic.RelDir;
+import tchojnacki.mcpcb.logic.TruthTable;
 
 import javax.annotation.ParametersAreNonnullByDefault;
 import java.util.List;
-import java.util.Objects;
 import java.util.Random;
 
 /**
@@ -47,36 +48,23 @@ public class CircuitBlockModel extends IBakedModelParentOverride {
         super(baseModel);
     }
 
-    // Model properties
-    private static final ModelProperty<Direction> FACING_PROP = new ModelProperty<>();
-    private static final ModelProperty<String> CENTER_TEXTURE_PROP = new ModelProperty<>();
-
-    // Model properties for side states (input/output/neither)
-    private static final ImmutableMap<Direction, ModelProperty<Integer>> STATES = ImmutableMap.<Direction, ModelProperty<Integer>>builder()
-            .put(Direction.NORTH, new ModelProperty<>())
-            .put(Direction.EAST, new ModelProperty<>())
-            .put(Direction.SOUTH, new ModelProperty<>())
-            .put(Direction.WEST, new ModelProperty<>())
-            .build();
-
     /**
-     * Get initial model data.
-     *
-     * @return base {@link IModelData} of a circuit
+     * Quad key of the circuit, see {@link CircuitTopFaceBakery#quadKey(int[], String, Direction)}.
      */
-    private static ModelDataMap emptyModelData() {
-        final var builder = new ModelDataMap.Builder();
+    private static final ModelProperty<Integer> QUAD_KEY_PROP = new ModelProperty<>();
 
-        builder.withInitial(FACING_PROP, Direction.NORTH);
-        builder.withInitial(CENTER_TEXTURE_PROP, KnownTable.DEFAULT_TEXTURE);
+    /**
+     * Quad key used when there is no block entity (blank circuit facing north).
+     */
+    private static final int EMPTY_QUAD_KEY = CircuitTopFaceBakery.quadKey(new int[]{0, 0, 0, 0}, KnownTable.DEFAULT_TEXTURE, Direction.NORTH);
 
-        // By default of faces are neither input nor output
-        Direction.Plane.HORIZONTAL.forEach(
-                d -> builder.withInitial(STATES.get(d), 0)
-        );
+    private static final int QUAD_KEY_CACHE_SIZE = 1024;
 
-        return builder.build();
-    }
+    /**
+     * Quad keys of truth tables, indexed by the 2D data value of the facing direction.
+     * Circuits hold interned truth tables, so all circuits with the same table share the keys.
+     */
+    private static final Cache<TruthTable, int[]> QUAD_KEY_CACHE = CacheBuilder.newBuilder().maximumSize(QUAD_KEY_CACHE_SIZE).build();
 
     /**
      * Fill model data of the model using information from associated {@link CircuitBlockEntity}.
@@ -93,35 +81,52 @@ public class CircuitBlockModel extends IBakedModelParentOverride {
     @NotNull
     @Override
     public IModelData getModelData(@NotNull BlockAndTintGetter blockGetter, @NotNull BlockPos blockPos, @NotNull BlockState blockState, @NotNull IModelData _data) {
-        IModelData data = emptyModelData();
+        int quadKey = EMPTY_QUAD_KEY;
 
         BlockEntity blockEntity = blockGetter.getBlockEntity(blockPos);
         if (blockEntity instanceof CircuitBlockEntity circuitEntity) {
-            Direction facing = blockState.getValue(HorizontalDirectionalBlock.FACING);
+            quadKey = getQuadKey(circuitEntity.getTruthTable(), blockState.getValue(HorizontalDirectionalBlock.FACING));
+        }
+
+        return new ModelDataMap.Builder().withInitial(QUAD_KEY_PROP, quadKey).build();
+    }
+
+    /**
+     * Get the cached quad key of a placed circuit, computing the keys of its truth table if needed.
+     *
+     * @param table  truth table of the circuit
+     * @param facing direction the circuit is facing
+     * @return quad key
+     * @see #QUAD_KEY_CACHE
+     */
+    private static int getQuadKey(TruthTable table, Direction facing) {
+        int[] keys = QUAD_KEY_CACHE.getIfPresent(table);
 
-            data.setData(FACING_PROP, facing);
-            data.setData(CENTER_TEXTURE_PROP, circuitEntity.getTexture());
+        if (keys == null) {
+            keys = new int[4];
+            for (Direction direction : Direction.Plane.HORIZONTAL) {
+                keys[direction.get2DDataValue()] = calculateQuadKey(table, direction);
+            }
 
-            Direction.Plane.HORIZONTAL.forEach(
-                    d -> data.setData(STATES.get(d), circuitEntity.getTruthTable().stateForSide(RelDir.getOffset(facing, d)))
-            );
+            QUAD_KEY_CACHE.put(table, keys);
         }
 
-        return data;
+        return keys[facing.get2DDataValue()];
     }
 
     /**
-     * Helper function to extract {@link ModelProperty} of {@link Integer}.
+     * Calculate the quad key of a placed circuit.
      *
-     * @param data     parent of the int property
-     * @param property {@link ModelProperty} to be extracted
-     * @return value of {@code property}, or zero if it doesn't exist
+     * @param table  truth table of the circuit
+     * @param facing direction the circuit is facing
+     * @return quad key
      */
-    private static int getIntData(IModelData data, ModelProperty<Integer> property) {
-        if (data.hasProperty(property) && data.getData(property) != null) {
-            return Objects.requireNonNull(data.getData(property));
-        }
-        return 0;
+    private static int calculateQuadKey(TruthTable table, Direction facing) {
+        final int[] states = CircuitTopFaceBakery.DIRECTIONS.stream().mapToInt(
+                d -> table.stateForSide(RelDir.getOffset(facing, d))
+        ).toArray();
+
+        return CircuitTopFaceBakery.quadKey(states, table.getTexture(), facing);
     }
 
     /**
@@ -130,7 +135,7 @@ public class CircuitBlockModel extends IBakedModelParentOverride {
      * @param blockState block state of the circuit block
      * @param side       direction of requested quads
      * @param random     passed to super method
-     * @param data       data generated by {@link #emptyModelData()} and {@link #getModelData(BlockAndTintGetter, BlockPos, BlockState, IModelData)}
+     * @param data       data generated by {@link #getModelData(BlockAndTintGetter, BlockPos, BlockState, IModelData)}
      * @return baked quads for direction given by {@code side}
      */
     @NotNull
@@ -142,27 +147,10 @@ public class CircuitBlockModel extends IBakedModelParentOverride {
             return baseModel.getQuads(blockState, side, random, data);
         }
 
-        String centerTextureName = KnownTable.DEFAULT_TEXTURE;
-        if (data.hasProperty(CENTER_TEXTURE_PROP) && data.getData(CENTER_TEXTURE_PROP) != null) {
-            centerTextureName = Objects.requireNonNull(data.getData(CENTER_TEXTURE_PROP));
-        }
-
-        Direction facing = Direction.NORTH;
-        if (data.hasProperty(FACING_PROP) && data.getData(FACING_PROP) != null) {
-            facing = Objects.requireNonNull(data.getData(FACING_PROP));
-        }
+        Integer quadKey = data.getData(QUAD_KEY_PROP);
 
         // Return top side's quads based on model data
-        return CircuitTopFaceBakery.generateQuads(
-                new int[]{
-                        getIntData(data, Objects.requireNonNull(STATES.get(Direction.NORTH))),
-                        getIntData(data, Objects.requireNonNull(STATES.get(Direction.EAST))),
-                        getIntData(data, Objects.requireNonNull(STATES.get(Direction.SOUTH))),
-                        getIntData(data, Objects.requireNonNull(STATES.get(Direction.WEST)))
-                },
-                centerTextureName,
-                facing
-        );
+        return CircuitTopFaceBakery.getQuads(quadKey != null ? quadKey : EMPTY_QUAD_KEY);
     }
 
     /**
@@ -1,10 +1,14 @@
 package tchojnacki.mcpcb.client.models;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import net.minecraft.MethodsReturnNonnullByDefault;
 import net.minecraft.client.multiplayer.ClientLevel;
 import net.minecraft.client.renderer.block.model.ItemOverrides;
 import net.minecraft.client.resources.model.BakedModel;
 import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.EndTag;
+import net.minecraft.nbt.Tag;
 import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.item.ItemStack;
 import org.jetbrains.annotations.NotNull;
@@ -15,6 +19,10 @@ import javax.annotation.ParametersAreNonnullByDefault;
 
 /**
  * Passes a correct {@link TruthTable} to use for circuit item model rendering.
+ * <p>
+ * Resolved models are cached by the encoded table from stack's NBT, since items get resolved every frame.
+ * The overrides are recreated together with {@link CircuitItemBaseModel} whenever models get baked,
+ * which also drops the cache on resource reload.
  *
  * @see CircuitItemBaseModel
  * @see CircuitItemFinalisedModel
@@ -23,6 +31,13 @@ import javax.annotation.ParametersAreNonnullByDefault;
 @MethodsReturnNonnullByDefault
 @ParametersAreNonnullByDefault
 public class CircuitItemOverrides extends ItemOverrides {
+    private final static int CACHE_SIZE = 256;
+
+    /**
+     * Resolved models keyed by the {@code TruthTable} tag, {@link EndTag} is used for stacks without one.
+     */
+    private final Cache<Tag, BakedModel> modelCache = CacheBuilder.newBuilder().maximumSize(CACHE_SIZE).build();
+
     public CircuitItemOverrides() {
         super();
     }
@@ -39,17 +54,19 @@ public class CircuitItemOverrides extends ItemOverrides {
     @Nullable
     @Override
     public BakedModel resolve(@NotNull BakedModel baseModel, @NotNull ItemStack itemStack, @Nullable ClientLevel _world, @Nullable LivingEntity _player, int _flag) {
-        // By default use an empty table (blank circuit)
-        TruthTable table = TruthTable.empty();
-
         // Extract BlockEntityTag->TruthTable from item's NBT
         CompoundTag tag = itemStack.getTagElement("BlockEntityTag");
-        if (tag != null) {
-            if (tag.contains("TruthTable", CompoundTag.TAG_COMPOUND)) {
-                table = TruthTable.fromNBT(tag.getCompound("TruthTable"));
-            }
+        Tag tableTag = tag != null ? tag.get("TruthTable") : null;
+        Tag key = tableTag != null ? tableTag : EndTag.INSTANCE;
+
+        BakedModel model = modelCache.getIfPresent(key);
+        if (model == null) {
+            // Missing tag results in an empty table (blank circuit)
+            model = new CircuitItemFinalisedModel(baseModel, TruthTable.fromNBT(tableTag));
+            // Stack's tag is mutable, so the key has to be a copy
+            modelCache.put(key.copy(), model);
         }
 
-        return new CircuitItemFinalisedModel(baseModel, table);
+        return model;
     }
 }
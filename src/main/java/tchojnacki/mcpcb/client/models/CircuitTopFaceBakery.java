@@ -8,6 +8,8 @@ import net.minecraft.client.renderer.block.model.BakedQuad;
 import net.minecraft.client.renderer.block.model.BlockElementFace;
 import net.minecraft.client.renderer.block.model.BlockFaceUV;
 import net.minecraft.client.renderer.block.model.FaceBakery;
+import net.minecraft.client.renderer.texture.TextureAtlas;
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
 import net.minecraft.core.Direction;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.inventory.InventoryMenu;
@@ -22,11 +24,16 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
 /**
  * Utility class that bakes quads for circuit's models (both item and block).
  * Cannot be instantiated.
+ * <p>
+ * There are only 3^4 side state combinations, 5 facings (four horizontal ones and any other) and a few center textures,
+ * so the quads are baked once per combination and cached under a packed key (see {@link #quadKey(int[], String, Direction)}).
+ * The cache is cleared whenever models get baked again, since the sprites might have changed.
  *
  * @see CircuitBlockModel#getQuads(BlockState, Direction, Random, IModelData)
  * @see CircuitItemFinalisedModel#getQuads(BlockState, Direction, Random)
@@ -53,6 +60,11 @@ public final class CircuitTopFaceBakery {
 
     public final static ImmutableMap<String, ResourceLocation> CENTER_TEXTURE_MAP;
 
+    /**
+     * Names of the center textures, indices into this list are used in quad keys.
+     */
+    public final static ImmutableList<String> CENTER_TEXTURE_NAMES;
+
     static {
         // Static block filling the CENTER_TEXTURE_MAP with required ResourceLocations
 
@@ -79,22 +91,103 @@ public final class CircuitTopFaceBakery {
         addTexture.accept("aoi");
 
         CENTER_TEXTURE_MAP = builder.build();
+        CENTER_TEXTURE_NAMES = CENTER_TEXTURE_MAP.keySet().asList();
     }
 
     /**
-     * Returns {@link BakedQuad} list based on side states (input/output/neither), center texture's name and facing direction.
+     * Baked quads, keyed by {@link #quadKey(int[], String, Direction)}.
+     * Chunks are meshed on multiple threads, hence the concurrent map.
+     */
+    private final static ConcurrentHashMap<Integer, ImmutableList<BakedQuad>> QUAD_CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * Value of the facing part of a quad key for directions other than {@link #DIRECTIONS}.
+     */
+    private final static int OTHER_FACING = 4;
+
+    /**
+     * Pack everything the quads depend on into a single integer.
+     * Bits 0-7 hold the side states (two bits each, in order given by {@link #DIRECTIONS}),
+     * bits 8-10 hold the index of the facing in {@link #DIRECTIONS} (or {@link #OTHER_FACING})
+     * and bits 11-15 hold the index of the center texture in {@link #CENTER_TEXTURE_NAMES}.
      *
      * @param states            array of four integers (0 - empty, 1 - input or 2 - output) in order given by {@link #DIRECTIONS}
      * @param centerTextureName name of the texture used for circuit's center (logic gate symbol)
      * @param facing            direction the circuit is facing
-     * @return list of baked quads used for rendering of the model
+     * @return quad key
      */
-    public static ImmutableList<BakedQuad> generateQuads(int[] states, String centerTextureName, Direction facing) {
+    public static int quadKey(int[] states, String centerTextureName, Direction facing) {
         // If states are incorrect silently replace them with a blank circuit's state
         if (states.length != 4 || Arrays.stream(states).anyMatch(s -> s < 0 || s > 2)) {
             states = new int[]{0, 0, 0, 0};
         }
 
+        int key = 0;
+        for (int i = 0; i < 4; i++) {
+            key |= states[i] << (2 * i);
+        }
+
+        int facingIndex = DIRECTIONS.indexOf(facing);
+        key |= (facingIndex >= 0 ? facingIndex : OTHER_FACING) << 8;
+
+        int textureIndex = CENTER_TEXTURE_NAMES.indexOf(centerTextureName);
+        key |= (textureIndex >= 0 ? textureIndex : CENTER_TEXTURE_NAMES.indexOf(KnownTable.DEFAULT_TEXTURE)) << 11;
+
+        return key;
+    }
+
+    /**
+     * Returns cached {@link BakedQuad} list for a quad key, baking it on first use.
+     *
+     * @param key quad key
+     * @return list of baked quads used for rendering of the model
+     * @see #quadKey(int[], String, Direction)
+     */
+    public static ImmutableList<BakedQuad> getQuads(int key) {
+        return QUAD_CACHE.computeIfAbsent(key, CircuitTopFaceBakery::bakeQuads);
+    }
+
+    /**
+     * Forget all of the baked quads, called after models get baked.
+     */
+    public static void clearCache() {
+        QUAD_CACHE.clear();
+    }
+
+    /**
+     * Returns {@link BakedQuad} list based on side states (input/output/neither), center texture's name and facing direction.
+     *
+     * @param states            array of four integers (0 - empty, 1 - input or 2 - output) in order given by {@link #DIRECTIONS}
+     * @param centerTextureName name of the texture used for circuit's center (logic gate symbol)
+     * @param facing            direction the circuit is facing
+     * @return list of baked quads used for rendering of the model
+     */
+    public static ImmutableList<BakedQuad> generateQuads(int[] states, String centerTextureName, Direction facing) {
+        return getQuads(quadKey(states, centerTextureName, facing));
+    }
+
+    /**
+     * Bake the quads for a quad key.
+     *
+     * @param key quad key
+     * @return list of baked quads used for rendering of the model
+     * @see #quadKey(int[], String, Direction)
+     */
+    private static ImmutableList<BakedQuad> bakeQuads(int key) {
+        final int[] states = new int[4];
+        for (int i = 0; i < 4; i++) {
+            states[i] = (key >>> (2 * i)) & 0b11;
+        }
+
+        final int facingIndex = (key >>> 8) & 0b111;
+        final String centerTextureName = CENTER_TEXTURE_NAMES.get((key >>> 11) & 0b11111);
+
+        // Sprites are resolved once per bake, instead of once per quad
+        final TextureAtlas atlas = Objects.requireNonNull(ForgeModelBakery.instance()).getSpriteMap().getAtlas(InventoryMenu.BLOCK_ATLAS);
+        final TextureAtlasSprite cornerSprite = atlas.getSprite(CORNER_TEXTURE);
+        final TextureAtlasSprite socketSprite = atlas.getSprite(SOCKET_TEXTURE);
+        final TextureAtlasSprite centerSprite = atlas.getSprite(Objects.requireNonNull(CENTER_TEXTURE_MAP.get(centerTextureName)));
+
         final var builder = new ImmutableList.Builder<BakedQuad>();
 
         // Render corners
@@ -110,7 +203,7 @@ public final class CircuitTopFaceBakery {
                     x, y, x + 2, y + 2,
                     0, 0, 2, 2,
                     i * 90,
-                    CORNER_TEXTURE
+                    cornerSprite
             ));
         }
 
@@ -129,10 +222,10 @@ public final class CircuitTopFaceBakery {
             // Render a socket
             builder.add(bakeQuadTop(
                     x, y, x + w, y + h,
-                    0, getSocketV(states, i, facing),
-                    12, getSocketV(states, i, facing) + 2,
+                    0, getSocketV(states, i, facingIndex),
+                    12, getSocketV(states, i, facingIndex) + 2,
                     i * 90,
-                    SOCKET_TEXTURE
+                    socketSprite
             ));
         }
 
@@ -140,8 +233,8 @@ public final class CircuitTopFaceBakery {
         builder.add(bakeQuadTop(
                 2, 2, 14, 14,
                 2, 2, 14, 14,
-                DIRECTIONS.contains(facing) ? DIRECTIONS.indexOf(facing) * 90 : 0, // Rotate texture to match facing direction
-                Objects.requireNonNull(CENTER_TEXTURE_MAP.getOrDefault(centerTextureName, CENTER_TEXTURE_MAP.get(KnownTable.DEFAULT_TEXTURE)))
+                facingIndex != OTHER_FACING ? facingIndex * 90 : 0, // Rotate texture to match facing direction
+                centerSprite
         ));
 
         return builder.build();
@@ -159,10 +252,10 @@ public final class CircuitTopFaceBakery {
      * @param u2               u coordinate of the bottom-right corner of the texture (u1 + texture width)
      * @param v2               v coordinate of the bottom-right corner of the texture (v1 + texture height)
      * @param uvRot            rotation of the texture
-     * @param resourceLocation texture name
+     * @param sprite           texture sprite from the block atlas
      * @return generated baked quad
      */
-    private static BakedQuad bakeQuadTop(int x1, int y1, int x2, int y2, int u1, int v1, int u2, int v2, int uvRot, ResourceLocation resourceLocation) {
+    private static BakedQuad bakeQuadTop(int x1, int y1, int x2, int y2, int u1, int v1, int u2, int v2, int uvRot, TextureAtlasSprite sprite) {
         // Based on: https://github.com/TheGreyGhost/MinecraftByExample/blob/e9862e606f6306463fccde5e3ebe576ea88f0745/src/main/java/minecraftbyexample/mbe04_block_dynamic_block_models/AltimeterBakedModel.java#L169
         return FACE_BAKERY.bakeQuad(
                 new Vector3f(x1, 2, y1), // Circuit's top face is at height 2
@@ -175,26 +268,24 @@ public final class CircuitTopFaceBakery {
                                 new float[]{u1, v1, u2, v2}, uvRot // Texture's u, v and rotation
                         )
                 ),
-                Objects.requireNonNull(ForgeModelBakery.instance()).getSpriteMap().getAtlas(InventoryMenu.BLOCK_ATLAS).getSprite(
-                        resourceLocation // Get texture from Minecraft's block atlas (it was put there in ClientRegistration)
-                ),
+                sprite, // Texture from Minecraft's block atlas (it was put there in ClientRegistration)
                 Direction.UP, // Face's direction
                 SimpleModelState.IDENTITY, // No transformation
                 null, // No face rotation
                 true, // Shading
-                resourceLocation // Dummy texture for error messages
+                sprite.getName() // Dummy texture for error messages
         );
     }
 
     /**
      * Returns v texture coordinate of socket based on states array, index and facing direction.
      *
-     * @param states state array passed to {@link #generateQuads(int[], String, Direction)}
-     * @param i      direction index
-     * @param facing facing direction
+     * @param states      state array passed to {@link #generateQuads(int[], String, Direction)}
+     * @param i           direction index
+     * @param facingIndex index of the facing direction in {@link #DIRECTIONS}
      * @return v coordinate of socket texture
      */
-    private static int getSocketV(int[] states, int i, Direction facing) {
-        return states[i] * 2 + (DIRECTIONS.get(i).equals(facing) ? 8 : 0);
+    private static int getSocketV(int[] states, int i, int facingIndex) {
+        return states[i] * 2 + (i == facingIndex ? 8 : 0);
     }
 }
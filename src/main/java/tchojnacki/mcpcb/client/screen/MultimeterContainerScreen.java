@@ -12,6 +12,7 @@ import net.minecraft.network.chat.Component;
 import net.minecraft.network.chat.TranslatableComponent;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.entity.player.Inventory;
+import net.minecraft.world.inventory.ClickType;
 import net.minecraft.world.inventory.Slot;
 import net.minecraftforge.api.distmarker.Dist;
 import net.minecraftforge.api.distmarker.OnlyIn;
@@ -20,6 +21,7 @@ import tchojnacki.mcpcb.common.container.MultimeterContainer;
 import tchojnacki.mcpcb.util.MultimeterScreenRenamePacket;
 import tchojnacki.mcpcb.util.PacketHandler;
 
+import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
 import java.util.ArrayList;
 
@@ -37,6 +39,20 @@ public class MultimeterContainerScreen extends AbstractContainerScreen<Multimete
     private final String initialName;
     private EditBox name;
 
+    // Number of ticks without edits after which the name is sent to the server
+    private final static int RENAME_DELAY = 10;
+
+    /**
+     * Name waiting to be sent to the server or null if there is none.
+     *
+     * @see #sendPendingName()
+     */
+    @Nullable
+    private String pendingName;
+    private String sentName = "";
+    private int renameCooldown = 0;
+    private int renameSequence = 0;
+
     public MultimeterContainerScreen(MultimeterContainer multimeterContainer, Inventory playerInv, Component title) {
         super(multimeterContainer, playerInv, title);
 
@@ -80,14 +96,43 @@ public class MultimeterContainerScreen extends AbstractContainerScreen<Multimete
         String formattedName = newName.equals(initialName) ? "" : newName;
         this.menu.setName(formattedName);
 
-        // We need to use packets to send the new name to server side
-        PacketHandler.INSTANCE.sendToServer(new MultimeterScreenRenamePacket(formattedName));
+        // Wait until the player stops typing before sending the name
+        pendingName = formattedName;
+        renameCooldown = RENAME_DELAY;
+    }
+
+    /**
+     * Send the pending name to the server, unless it is the one that was sent last.
+     * We need to use packets to send the new name to server side.
+     */
+    private void sendPendingName() {
+        if (pendingName != null) {
+            if (!pendingName.equals(sentName)) {
+                PacketHandler.INSTANCE.sendToServer(new MultimeterScreenRenamePacket(renameSequence++, pendingName));
+                sentName = pendingName;
+            }
+
+            pendingName = null;
+        }
     }
 
     @Override
     protected void containerTick() {
         super.containerTick();
         this.name.tick();
+
+        if (pendingName != null && --renameCooldown <= 0) {
+            sendPendingName();
+        }
+    }
+
+    /**
+     * Make sure the server knows the current name before it handles the click (for instance taking the circuit).
+     */
+    @Override
+    protected void slotClicked(@Nullable Slot slot, int slotId, int mouseButton, ClickType clickType) {
+        sendPendingName();
+        super.slotClicked(slot, slotId, mouseButton, clickType);
     }
 
     @Override
@@ -98,12 +143,26 @@ public class MultimeterContainerScreen extends AbstractContainerScreen<Multimete
         this.name.setValue(nameStr);
     }
 
+    /**
+     * Send the pending name before the container gets closed, the server ignores names sent after that.
+     */
+    @Override
+    public void onClose() {
+        sendPendingName();
+        super.onClose();
+    }
+
     @Override
     public void removed() {
         super.removed();
 
         if (this.minecraft != null) {
             this.minecraft.keyboardHandler.setSendRepeatsToGui(false);
+
+            // Screen closed some other way (e.g. by the server), don't drop the last edit if we are still connected
+            if (this.minecraft.getConnection() != null) {
+                sendPendingName();
+            }
         }
     }
 
@@ -111,6 +170,7 @@ public class MultimeterContainerScreen extends AbstractContainerScreen<Multimete
     public boolean keyPressed(int key, int flag1, int flag2) {
         // Close container on ESC press
         if (key == 256 && this.minecraft != null && this.minecraft.player != null) {
+            sendPendingName();
             this.minecraft.player.closeContainer();
         }
 
@@ -1,10 +1,18 @@
 package tchojnacki.mcpcb.client.screen;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.mojang.blaze3d.systems.RenderSystem;
+import com.mojang.blaze3d.vertex.BufferBuilder;
+import com.mojang.blaze3d.vertex.BufferUploader;
+import com.mojang.blaze3d.vertex.DefaultVertexFormat;
 import com.mojang.blaze3d.vertex.PoseStack;
+import com.mojang.blaze3d.vertex.Tesselator;
+import com.mojang.blaze3d.vertex.VertexFormat;
+import com.mojang.math.Matrix4f;
 import net.minecraft.MethodsReturnNonnullByDefault;
 import net.minecraft.client.gui.screens.inventory.AbstractContainerScreen;
+import net.minecraft.client.renderer.GameRenderer;
 import net.minecraft.core.Direction;
 import net.minecraft.network.chat.Component;
 import net.minecraft.resources.ResourceLocation;
@@ -16,7 +24,7 @@ import tchojnacki.mcpcb.MCPCB;
 import tchojnacki.mcpcb.common.container.ScrewdriverContainer;
 
 import javax.annotation.ParametersAreNonnullByDefault;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Objects;
 
 record UIPos(int x, int y) {}
@@ -40,14 +48,36 @@ public class ScrewdriverContainerScreen extends AbstractContainerScreen<Screwdri
             .put(Direction.WEST, new Tuple<>(new UIPos(40, 59), new UIPos(55, 106)))
             .build();
 
+    // Order of the buttons, also used for their texture positions
+    private final static ImmutableList<Direction> DIRECTIONS = ImmutableList.of(Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST);
+
     private final static int BLOCK_SIZE = 16;
     private final static int BORDER_PADDING = 2;
+    private final static int TEXTURE_SIZE = 256;
+
+    /**
+     * Quads drawn on top of the background (button borders and cells), each one as {x, y, u, v, width, height}
+     * with positions relative to the top-left corner of the screen.
+     *
+     * @see #rebuildBoardQuads(int)
+     */
+    private final ArrayList<int[]> boardQuads = new ArrayList<>();
+
+    private final int[] backgroundQuad;
+
+    /**
+     * Socket states and hovered buttons for which {@link #boardQuads} were built.
+     *
+     * @see #getBoardKey(int, int)
+     */
+    private int boardQuadsKey = -1;
 
     public ScrewdriverContainerScreen(ScrewdriverContainer screwdriverContainer, Inventory playerInv, Component title) {
         super(screwdriverContainer, playerInv, title);
 
         this.imageWidth = 176;
         this.imageHeight = 166;
+        this.backgroundQuad = new int[]{0, 0, 0, 0, imageWidth, imageHeight};
     }
 
     public boolean mouseClicked(double mouseX, double mouseY, int mouseButton) {
@@ -95,7 +125,7 @@ public class ScrewdriverContainerScreen extends AbstractContainerScreen<Screwdri
      * @return vector containing u and v of button's texture
      */
     private UIPos getButtonTexture(Direction direction, int state, boolean isHovered) {
-        int dirIndex = Arrays.asList(new Direction[]{Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST}).indexOf(direction);
+        int dirIndex = DIRECTIONS.indexOf(direction);
 
         return new UIPos(dirIndex * BLOCK_SIZE + (isHovered ? 4 * BLOCK_SIZE : 0), imageHeight + state * BLOCK_SIZE);
     }
@@ -139,35 +169,110 @@ public class ScrewdriverContainerScreen extends AbstractContainerScreen<Screwdri
         this.renderTooltip(matrixStack, mouseX, mouseY);
     }
 
+    /**
+     * Pack everything the button quads depend on into a single integer.
+     *
+     * @param mouseX mouse x
+     * @param mouseY mouse y
+     * @return socket state of each button (two bits each) followed by a bit for each hovered button, in order of {@link #DIRECTIONS}
+     */
+    private int getBoardKey(int mouseX, int mouseY) {
+        int key = 0;
+
+        for (int i = 0; i < DIRECTIONS.size(); i++) {
+            Direction direction = DIRECTIONS.get(i);
+            key |= menu.getSocketStateNumber(direction) << (2 * i);
+
+            if (containedInButtonArea(mouseX, mouseY, Objects.requireNonNull(BUTTON_AREAS.get(direction)))) {
+                key |= 1 << (2 * DIRECTIONS.size() + i);
+            }
+        }
+
+        return key;
+    }
+
+    /**
+     * Recalculate the quads of the buttons.
+     *
+     * @param key key returned by {@link #getBoardKey(int, int)}
+     */
+    private void rebuildBoardQuads(int key) {
+        boardQuads.clear();
+
+        for (int i = 0; i < DIRECTIONS.size(); i++) {
+            Direction direction = DIRECTIONS.get(i);
+            int state = (key >>> (2 * i)) & 0b11;
+            boolean isHovered = (key & (1 << (2 * DIRECTIONS.size() + i))) != 0;
+
+            Tuple<UIPos, UIPos> btnArea = Objects.requireNonNull(BUTTON_AREAS.get(direction));
+            UIPos buttonTextureLocation = getButtonTexture(direction, state, isHovered);
+            UIPos borderTextureLocation = getBorderTexture(direction, isHovered);
+            UIPos borderSize = getBorderSize(direction);
+
+            boardQuads.add(new int[]{
+                    btnArea.getA().x() - BORDER_PADDING, btnArea.getA().y() - BORDER_PADDING,
+                    borderTextureLocation.x(), borderTextureLocation.y(),
+                    borderSize.x(), borderSize.y()
+            });
+
+            for (int x = btnArea.getA().x(); x < btnArea.getB().x(); x += BLOCK_SIZE) {
+                for (int y = btnArea.getA().y(); y < btnArea.getB().y(); y += BLOCK_SIZE) {
+                    boardQuads.add(new int[]{x, y, buttonTextureLocation.x(), buttonTextureLocation.y(), BLOCK_SIZE, BLOCK_SIZE});
+                }
+            }
+        }
+
+        boardQuadsKey = key;
+    }
+
+    /**
+     * Add a textured quad to the buffer, the same one as {@link #blit(PoseStack, int, int, int, int, int, int)} would draw.
+     *
+     * @param buffer buffer in {@link DefaultVertexFormat#POSITION_TEX} format
+     * @param matrix pose matrix
+     * @param quad   quad as {x, y, u, v, width, height}
+     * @param left   x offset added to quad's position
+     * @param top    y offset added to quad's position
+     */
+    private void addQuad(BufferBuilder buffer, Matrix4f matrix, int[] quad, int left, int top) {
+        float x1 = left + quad[0], y1 = top + quad[1], x2 = x1 + quad[4], y2 = y1 + quad[5];
+        float u1 = (float) quad[2] / TEXTURE_SIZE, v1 = (float) quad[3] / TEXTURE_SIZE;
+        float u2 = (float) (quad[2] + quad[4]) / TEXTURE_SIZE, v2 = (float) (quad[3] + quad[5]) / TEXTURE_SIZE;
+        float z = getBlitOffset();
+
+        buffer.vertex(matrix, x1, y2, z).uv(u1, v2).endVertex();
+        buffer.vertex(matrix, x2, y2, z).uv(u2, v2).endVertex();
+        buffer.vertex(matrix, x2, y1, z).uv(u2, v1).endVertex();
+        buffer.vertex(matrix, x1, y1, z).uv(u1, v1).endVertex();
+    }
+
+    /**
+     * Draw the background together with the buttons in a single batch.
+     * Button quads are only recalculated when a socket state changes or another button gets hovered.
+     */
     @Override
     protected void renderBg(PoseStack matrixStack, float partialTicks, int mouseX, int mouseY) {
         if (this.minecraft != null) {
+            int key = getBoardKey(mouseX, mouseY);
+            if (key != boardQuadsKey) {
+                rebuildBoardQuads(key);
+            }
+
+            RenderSystem.setShader(GameRenderer::getPositionTexShader);
             RenderSystem.setShaderColor(1.0F, 1.0F, 1.0F, 1.0F);
             RenderSystem.setShaderTexture(0, TEXTURE);
-            this.blit(matrixStack, this.leftPos, this.topPos, 0, 0, this.imageWidth, this.imageHeight);
-
-            for (Direction direction : Direction.Plane.HORIZONTAL) {
-                int state = menu.getSocketStateNumber(direction);
-                Tuple<UIPos, UIPos> btnArea = BUTTON_AREAS.get(direction);
-                boolean isHovered = containedInButtonArea(mouseX, mouseY, Objects.requireNonNull(btnArea));
-                UIPos buttonTextureLocation = getButtonTexture(direction, state, isHovered);
-                UIPos borderTextureLocation = getBorderTexture(direction, isHovered);
-                UIPos borderSize = getBorderSize(direction);
-
-                this.blit(
-                        matrixStack,
-                        leftPos + btnArea.getA().x() - BORDER_PADDING,
-                        topPos + btnArea.getA().y() - BORDER_PADDING,
-                        borderTextureLocation.x(), borderTextureLocation.y(),
-                        borderSize.x(), borderSize.y()
-                );
-
-                for (int x = btnArea.getA().x() + leftPos; x < btnArea.getB().x() + leftPos; x += BLOCK_SIZE) {
-                    for (int y = btnArea.getA().y() + topPos; y < btnArea.getB().y() + topPos; y += BLOCK_SIZE) {
-                        this.blit(matrixStack, x, y, buttonTextureLocation.x(), buttonTextureLocation.y(), BLOCK_SIZE, BLOCK_SIZE);
-                    }
-                }
+
+            Matrix4f matrix = matrixStack.last().pose();
+            BufferBuilder buffer = Tesselator.getInstance().getBuilder();
+            buffer.begin(VertexFormat.Mode.QUADS, DefaultVertexFormat.POSITION_TEX);
+
+            addQuad(buffer, matrix, backgroundQuad, leftPos, topPos);
+            for (int[] quad : boardQuads) {
+                addQuad(buffer, matrix, quad, leftPos, topPos);
             }
+
+            buffer.end();
+            BufferUploader.end(buffer);
         }
     }
 
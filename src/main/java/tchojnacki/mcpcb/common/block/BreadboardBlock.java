@@ -1,15 +1,25 @@
 package tchojnacki.mcpcb.common.block;
 
 import net.minecraft.MethodsReturnNonnullByDefault;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.BlockGetter;
+import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.block.state.StateDefinition;
+import net.minecraft.world.level.block.state.properties.BlockStateProperties;
+import net.minecraft.world.level.block.state.properties.BooleanProperty;
 import net.minecraft.world.level.block.state.properties.EnumProperty;
 import net.minecraft.world.level.material.Material;
 import net.minecraft.world.level.material.PushReaction;
+import tchojnacki.mcpcb.logic.BoardAccelerator;
+import tchojnacki.mcpcb.logic.BoardSocket;
 import tchojnacki.mcpcb.logic.BreadboardKindEnum;
 
 import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Random;
 
 @MethodsReturnNonnullByDefault
 @ParametersAreNonnullByDefault
@@ -18,6 +28,16 @@ public class BreadboardBlock extends Block {
 
     public final static EnumProperty<BreadboardKindEnum> KIND = EnumProperty.create("kind", BreadboardKindEnum.class);
 
+    /**
+     * Set on socket blocks of accelerated boards.
+     */
+    public final static BooleanProperty ACCELERATED = BooleanProperty.create("accelerated");
+
+    /**
+     * Set on output socket blocks of accelerated boards while the output is on.
+     */
+    public final static BooleanProperty POWERED = BlockStateProperties.POWERED;
+
     public BreadboardBlock() {
         super(
                 Properties
@@ -29,17 +49,19 @@ public class BreadboardBlock extends Block {
         this.registerDefaultState(
                 this.defaultBlockState()
                         .setValue(KIND, BreadboardKindEnum.NORMAL)
+                        .setValue(ACCELERATED, false)
+                        .setValue(POWERED, false)
         );
     }
 
     /**
-     * Adds {@link #KIND} to block state's definition.
+     * Adds {@link #KIND}, {@link #ACCELERATED} and {@link #POWERED} to block state's definition.
      *
      * @param builder state container builder
      */
     @Override
     protected void createBlockStateDefinition(StateDefinition.Builder<Block, BlockState> builder) {
-        builder.add(KIND);
+        builder.add(KIND, ACCELERATED, POWERED);
     }
 
     /**
@@ -53,4 +75,106 @@ public class BreadboardBlock extends Block {
     public PushReaction getPistonPushReaction(BlockState _blockState) {
         return PushReaction.BLOCK;
     }
+
+    /**
+     * Only output sockets can provide power, and only when their board is accelerated.
+     *
+     * @param blockState block's state
+     * @return if the block is an output socket of an accelerated board
+     * @see BoardAccelerator
+     */
+    @SuppressWarnings("deprecation")
+    @Override
+    public boolean isSignalSource(BlockState blockState) {
+        return blockState.getValue(ACCELERATED) && blockState.getValue(KIND).getState() == BoardSocket.State.Output;
+    }
+
+    /**
+     * Returns block's WEAK power, powered output sockets power the block outside of the board next to them.
+     *
+     * @param blockState   block's state
+     * @param _blockGetter unused
+     * @param _blockPos    unused
+     * @param direction    direction FROM NEIGHBOUR TO THIS BLOCK
+     * @return WEAK power this block supplies to it's neighbour at {@code direction.getOpposite()}
+     */
+    @SuppressWarnings("deprecation")
+    @Override
+    public int getSignal(BlockState blockState, BlockGetter _blockGetter, BlockPos _blockPos, Direction direction) {
+        if (blockState.getValue(POWERED) && blockState.getValue(KIND).getDirection() == direction.getOpposite()) {
+            return 15;
+        }
+
+        return 0;
+    }
+
+    /**
+     * Returns block's STRONG power, same as the weak power.
+     *
+     * @param blockState  block's state
+     * @param blockGetter block reader
+     * @param blockPos    block's pos
+     * @param direction   direction FROM NEIGHBOUR TO THIS BLOCK
+     * @return STRONG power this block supplies to it's neighbour at {@code direction.getOpposite()}
+     */
+    @SuppressWarnings("deprecation")
+    @Override
+    public int getDirectSignal(BlockState blockState, BlockGetter blockGetter, BlockPos blockPos, Direction direction) {
+        return blockState.getSignal(blockGetter, blockPos, direction);
+    }
+
+    /**
+     * Called when a neighbour updates. Input sockets of accelerated boards read their inputs again.
+     *
+     * @param blockState block's state
+     * @param level      block's level
+     * @param blockPos   block's position
+     * @param _block     unused
+     * @param _updatePos unused
+     * @param _flag      unused
+     */
+    @SuppressWarnings("deprecation")
+    @Override
+    public void neighborChanged(BlockState blockState, Level level, BlockPos blockPos, Block _block, BlockPos _updatePos, boolean _flag) {
+        if (level instanceof ServerLevel serverLevel && blockState.getValue(KIND).getState() == BoardSocket.State.Input) {
+            BoardAccelerator accelerator = BoardAccelerator.get(serverLevel);
+            BlockPos nwCorner = accelerator.getBoardOfSocket(blockPos);
+            if (nwCorner != null) {
+                accelerator.update(serverLevel, nwCorner);
+            }
+        }
+    }
+
+    /**
+     * Called on tick scheduled by an accelerated board, at its north-west corner.
+     *
+     * @param _blockState unused
+     * @param serverLevel block's world (server side)
+     * @param blockPos    block's pos
+     * @param _random     unused
+     */
+    @SuppressWarnings("deprecation")
+    @Override
+    public void tick(BlockState _blockState, ServerLevel serverLevel, BlockPos blockPos, Random _random) {
+        BoardAccelerator.get(serverLevel).tick(serverLevel, blockPos);
+    }
+
+    /**
+     * Called when the block gets destroyed, disables acceleration of its board.
+     *
+     * @param blockState        block's state
+     * @param level             block's level
+     * @param blockPos          block's pos
+     * @param updatedBlockState block state after removal, passed to super method
+     * @param flag              passed to super method
+     */
+    @SuppressWarnings("deprecation")
+    @Override
+    public void onRemove(BlockState blockState, Level level, BlockPos blockPos, BlockState updatedBlockState, boolean flag) {
+        if (!blockState.is(updatedBlockState.getBlock()) && level instanceof ServerLevel serverLevel) {
+            BoardAccelerator.get(serverLevel).disableContaining(serverLevel, blockPos);
+        }
+
+        super.onRemove(blockState, level, blockPos, updatedBlockState, flag);
+    }
 }
@@ -1,10 +1,14 @@
 package tchojnacki.mcpcb.common.block;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import net.minecraft.ChatFormatting;
 import net.minecraft.MethodsReturnNonnullByDefault;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
+import net.minecraft.locale.Language;
 import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.Tag;
 import net.minecraft.network.chat.Component;
 import net.minecraft.network.chat.TextComponent;
 import net.minecraft.network.chat.TranslatableComponent;
@@ -25,19 +29,20 @@ import net.minecraft.world.level.block.state.StateDefinition;
 import net.minecraft.world.level.material.Material;
 import net.minecraft.world.phys.shapes.CollisionContext;
 import net.minecraft.world.phys.shapes.VoxelShape;
-import net.minecraft.world.ticks.ScheduledTick;
-import net.minecraft.world.ticks.TickPriority;
 import net.minecraftforge.api.distmarker.Dist;
 import net.minecraftforge.api.distmarker.OnlyIn;
 import org.jetbrains.annotations.Nullable;
 import tchojnacki.mcpcb.common.block.entities.CircuitBlockEntity;
+import tchojnacki.mcpcb.logic.CircuitSimulator;
 import tchojnacki.mcpcb.logic.KnownTable;
+import tchojnacki.mcpcb.logic.OscillationTracker;
 import tchojnacki.mcpcb.logic.RelDir;
-import tchojnacki.mcpcb.logic.SideBoolMap;
 import tchojnacki.mcpcb.logic.TruthTable;
 import tchojnacki.mcpcb.util.CircuitCreateTrigger;
+import tchojnacki.mcpcb.util.Config;
 
 import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 import java.util.stream.Collectors;
@@ -53,9 +58,27 @@ import java.util.stream.Collectors;
 public class CircuitBlock extends HorizontalDirectionalBlock implements EntityBlock { // extend HorizontalBlock for facing direction
     public final static String ID = "circuit";
 
-    private final static int DELAY = 2;
     private final static VoxelShape SHAPE = Block.box(0.0D, 0.0D, 0.0D, 16.0D, 2.0D, 16.0D);
 
+    /**
+     * Tooltip lines computed for a single truth table.
+     *
+     * @param circuitName     blue name of the recognized circuit or null if it isn't recognized
+     * @param circuitNameText plain text of the name, compared with item's custom name
+     * @param rows            lists of inputs and outputs
+     */
+    private record TooltipLines(@Nullable Component circuitName, String circuitNameText, List<Component> rows) {}
+
+    private final static int TOOLTIP_CACHE_SIZE = 256;
+
+    /*
+    Tooltip lines keyed by the TruthTable tag of the item. Direction lists are translated when the lines are created,
+    so the cache is only valid for the language it was filled in and gets cleared once the language changes.
+     */
+    private final static Cache<Tag, TooltipLines> TOOLTIP_CACHE = CacheBuilder.newBuilder().maximumSize(TOOLTIP_CACHE_SIZE).build();
+    @Nullable
+    private static Language tooltipLanguage;
+
     /**
      * Custom method called on circuit creation (using the Multimeter), used to grant criteria for achievements.
      *
@@ -70,6 +93,24 @@ public class CircuitBlock extends HorizontalDirectionalBlock implements EntityBl
         }
     }
 
+    /**
+     * Called when a circuit item stack gets loaded, rewrites its truth table in the format chosen in the config.
+     * Otherwise stacks of the same circuit saved in different formats wouldn't stack together.
+     *
+     * @param tag tag of the item stack
+     * @see Config#legacyTableFormat()
+     */
+    public static void normalizeItemTag(CompoundTag tag) {
+        if (tag.contains("BlockEntityTag", Tag.TAG_COMPOUND)) {
+            CompoundTag blockEntityTag = tag.getCompound("BlockEntityTag");
+
+            if (blockEntityTag.contains("TruthTable")) {
+                TruthTable table = TruthTable.fromNBT(blockEntityTag.get("TruthTable"));
+                blockEntityTag.put("TruthTable", table.toNBT(Config.legacyTableFormat()));
+            }
+        }
+    }
+
     public CircuitBlock() {
         super(
                 // properties based on vanilla's comparator and repeater
@@ -83,21 +124,6 @@ public class CircuitBlock extends HorizontalDirectionalBlock implements EntityBl
         );
     }
 
-    /**
-     * Checks if the block is being powered from a given side.
-     *
-     * @param level    block's level
-     * @param blockPos block's position
-     * @param relDir   the side
-     * @return whether the circuit has power from the side
-     */
-    private boolean hasSignalFrom(Level level, BlockPos blockPos, RelDir relDir) {
-        BlockState blockState = level.getBlockState(blockPos);
-        Direction direction = relDir.offsetFrom(blockState.getValue(FACING));
-
-        return level.hasSignal(blockPos.relative(direction), direction);
-    }
-
     /**
      * Adds {@link #FACING} to block state's definition.
      *
@@ -119,74 +145,68 @@ public class CircuitBlock extends HorizontalDirectionalBlock implements EntityBl
         return this.defaultBlockState().setValue(FACING, context.getHorizontalDirection());
     }
 
+    /**
+     * Create a simulator of the circuits in a level, using current config values.
+     *
+     * @param serverLevel the level (server side)
+     * @return circuit simulator
+     */
+    private CircuitSimulator simulator(ServerLevel serverLevel) {
+        return new CircuitSimulator(new LevelCircuitWorld(serverLevel, this), Config.simulationSettings());
+    }
+
     /**
      * Use the tile entity to calculate circuit's outputs based on input signals.
      * Then schedule a tick to update circuit's neighbours after a delay.
+     * Circuits are only simulated on the server, clients receive their outputs from it.
      *
      * @param level    block's level
      * @param blockPos block's pos
-     * @see CircuitBlockEntity
+     * @see CircuitSimulator#calculatePower(BlockPos)
      */
     private void calculatePowerAndUpdateNeighbours(Level level, BlockPos blockPos) {
-        BlockEntity blockEntity = level.getBlockEntity(blockPos);
-        if (blockEntity instanceof CircuitBlockEntity circuitEntity) {
-            // Get power before and after update
-            SideBoolMap currentPower = circuitEntity.getActualOutput();
-            SideBoolMap newPower = circuitEntity.setQueuedOutput(
-                    SideBoolMap.constructWith(dir -> hasSignalFrom(level, blockPos, dir))
-            );
-
-            // Schedule tick if new power is different
-            if (!currentPower.equals(newPower)) {
-                level.getBlockTicks().schedule(new ScheduledTick<>(this, blockPos, DELAY, TickPriority.VERY_HIGH, 0));
-            }
+        if (level instanceof ServerLevel serverLevel) {
+            simulator(serverLevel).calculatePower(blockPos);
         }
     }
 
+    /**
+     * Evaluate a batch of circuits collected during a tick.
+     * Besides batch evaluation, it is also used for circuits in freshly loaded chunks.
+     *
+     * @param serverLevel level of the circuits
+     * @param positions   positions of the circuits, in a deterministic order
+     * @see CircuitSimulator#evaluateBatch(List)
+     */
+    public void evaluateBatch(ServerLevel serverLevel, List<BlockPos> positions) {
+        simulator(serverLevel).evaluateBatch(positions);
+    }
+
     /**
      * Called on tick scheduled in {@link #calculatePowerAndUpdateNeighbours(Level, BlockPos)}.
      *
-     * @param blockState  block's state
+     * @param _blockState unused
      * @param serverLevel block's world (server side)
      * @param blockPos    block's pos
      * @param _random     unused
+     * @see CircuitSimulator#tick(BlockPos)
      */
     @SuppressWarnings("deprecation")
     @Override
-    public void tick(BlockState blockState, ServerLevel serverLevel, BlockPos blockPos, Random _random) {
-        BlockEntity blockEntity = serverLevel.getBlockEntity(blockPos);
-        if (blockEntity instanceof CircuitBlockEntity circuitEntity) {
-            // Update only if the output will change
-            if (circuitEntity.isOutputOutdated()) {
-                circuitEntity.updateOutput();
-
-                // Update immediate neighbouring blocks
-                serverLevel.updateNeighborsAt(blockPos, this);
-
-                /*
-                If there is an output on given side update neighbours of neighbouring block too.
-                In case there is a solid block at the output, the signal should propagate further
-                (because circuit block provides strong signal), hence another set of blocks needs updating.
-
-                For instance, consider a horizontal plane with a circuit with an output at each side, marked as '*' below:
-                  2
-                 212
-                21*12
-                 212
-                  2
-                The blocks marked as '1' would get updated by the command above, while blocks marked as '2' would
-                get updated by the loop below.
-
-                TODO: As a possible performance increase we might request block updates only if the direct neighbour
-                    can conduct redstone power (it is solid). Meaning we only update blocks marked '2' from the example
-                    above only if their according '1' blocks conduct power
-                 */
-                for (Direction direction : Direction.Plane.HORIZONTAL) {
-                    if (circuitEntity.hasOutputOnSide(RelDir.getOffset(blockState.getValue(FACING), direction))) {
-                        serverLevel.updateNeighborsAtExceptFromFacing(blockPos.relative(direction), this, direction.getOpposite());
-                    }
-                }
-            }
+    public void tick(BlockState _blockState, ServerLevel serverLevel, BlockPos blockPos, Random _random) {
+        simulator(serverLevel).tick(blockPos);
+    }
+
+    /**
+     * Invalidate clusters of the circuit at a given position and its neighbours, after the connections between them changed.
+     *
+     * @param level    block's level
+     * @param blockPos block's position
+     * @see CircuitSimulator#invalidateClustersAround(BlockPos)
+     */
+    private void invalidateClustersAround(Level level, BlockPos blockPos) {
+        if (level instanceof ServerLevel serverLevel) {
+            simulator(serverLevel).invalidateClustersAround(blockPos);
         }
     }
 
@@ -223,14 +243,11 @@ public class CircuitBlock extends HorizontalDirectionalBlock implements EntityBl
     public int getSignal(BlockState blockState, BlockGetter blockGetter, BlockPos blockPos, Direction direction) {
         BlockEntity blockEntity = blockGetter.getBlockEntity(blockPos);
         if (blockEntity instanceof CircuitBlockEntity circuitEntity) {
-            return circuitEntity
-                    .getActualOutput()
-                    .get(
-                            RelDir.getOffset(
-                                    blockState.getValue(FACING),
-                                    direction.getOpposite() // getOpposite to get direction from this block to neighbour
-                            )
-                    ) ? 15 : 0;
+            RelDir side = RelDir.getOffset(
+                    blockState.getValue(FACING),
+                    direction.getOpposite() // getOpposite to get direction from this block to neighbour
+            );
+            return (circuitEntity.getActualOutputMask() & (1 << side.ordinal())) != 0 ? 15 : 0;
         }
 
         return 0;
@@ -315,6 +332,7 @@ public class CircuitBlock extends HorizontalDirectionalBlock implements EntityBl
     @SuppressWarnings("deprecation")
     @Override
     public void onPlace(BlockState _blockState, Level level, BlockPos blockPos, BlockState _blockStateUpdated, boolean _flag) {
+        invalidateClustersAround(level, blockPos);
         calculatePowerAndUpdateNeighbours(level, blockPos);
     }
 
@@ -335,9 +353,14 @@ public class CircuitBlock extends HorizontalDirectionalBlock implements EntityBl
         if (!flag && !blockState.is(updatedBlockState.getBlock())) {
             super.onRemove(blockState, level, blockPos, updatedBlockState, false);
 
+            invalidateClustersAround(level, blockPos);
+            if (level instanceof ServerLevel serverLevel) {
+                OscillationTracker.get(serverLevel).remove(blockPos);
+            }
+
             level.updateNeighborsAt(blockPos, this);
             for (Direction direction : Direction.Plane.HORIZONTAL) {
-                // TODO: Update only neighbours separated by a conducting block, for more info see calculatePowerAndUpdateNeighbours()
+                // TODO: Update only neighbours separated by a conducting block, for more info see CircuitSimulator#updateNeighbours()
                 level.updateNeighborsAtExceptFromFacing(blockPos.relative(direction), this, direction.getOpposite());
             }
         }
@@ -382,7 +405,7 @@ public class CircuitBlock extends HorizontalDirectionalBlock implements EntityBl
         BlockEntity blockEntity = blockGetter.getBlockEntity(blockPos);
         if (blockEntity instanceof CircuitBlockEntity circuitEntity) {
             // Copy NBT
-            itemStack.getOrCreateTagElement("BlockEntityTag").put("TruthTable", circuitEntity.getTruthTable().toNBT());
+            itemStack.getOrCreateTagElement("BlockEntityTag").put("TruthTable", circuitEntity.getTruthTable().toNBT(Config.legacyTableFormat()));
 
             // Copy custom name
             if (circuitEntity.getCustomName() != null) {
@@ -402,7 +425,7 @@ public class CircuitBlock extends HorizontalDirectionalBlock implements EntityBl
     public ItemStack stackFromTable(TruthTable table) {
         ItemStack itemStack = new ItemStack(this);
 
-        itemStack.getOrCreateTagElement("BlockEntityTag").put("TruthTable", table.toNBT());
+        itemStack.getOrCreateTagElement("BlockEntityTag").put("TruthTable", table.toNBT(Config.legacyTableFormat()));
 
         return itemStack;
     }
@@ -435,6 +458,12 @@ public class CircuitBlock extends HorizontalDirectionalBlock implements EntityBl
             CompoundTag tag = itemStack.getTagElement("BlockEntityTag");
             if (tag != null) {
                 circuitEntity.setFromParentTag(tag);
+
+                // The truth table was unknown during onPlace
+                invalidateClustersAround(level, blockPos);
+                if (!level.isClientSide) {
+                    calculatePowerAndUpdateNeighbours(level, blockPos);
+                }
             }
         }
     }
@@ -473,32 +502,70 @@ public class CircuitBlock extends HorizontalDirectionalBlock implements EntityBl
     public void appendHoverText(ItemStack itemStack, @Nullable BlockGetter _blockGetter, List<Component> rows, TooltipFlag _flag) {
         CompoundTag tag = itemStack.getTagElement("BlockEntityTag");
         if (tag != null) {
-            if (tag.contains("TruthTable", CompoundTag.TAG_COMPOUND)) {
-                TruthTable table = TruthTable.fromNBT(tag.getCompound("TruthTable"));
+            Tag tableTag = tag.get("TruthTable");
+            if (tableTag != null) {
+                TooltipLines lines = getTooltipLines(tableTag);
 
                 // Add a blue circuit name if it isn't mentioned in its custom name
-                KnownTable knownTable = table.recognize();
-                if (knownTable != null) {
-                    TranslatableComponent circuitName = knownTable.getTranslationKey();
-
-                    if (!itemStack.hasCustomHoverName() || !itemStack.getHoverName().getString().equals(circuitName.getString())) {
-                        rows.add(circuitName.plainCopy().withStyle(ChatFormatting.BLUE));
+                if (lines.circuitName() != null) {
+                    if (!itemStack.hasCustomHoverName() || !itemStack.getHoverName().getString().equals(lines.circuitNameText())) {
+                        rows.add(lines.circuitName());
                     }
                 }
 
-                // List inputs
-                if (table.getInputs().size() > 0) {
-                    rows.add(dirListTextComponent("inputs", table.getInputs()));
-                }
-
-                // List outputs
-                if (table.getOutputs().size() > 0) {
-                    rows.add(dirListTextComponent("outputs", table.getOutputs()));
-                }
+                rows.addAll(lines.rows());
             }
         }
     }
 
+    /**
+     * Get cached tooltip lines for a truth table, computing them if needed.
+     *
+     * @param tableTag encoded truth table from item's NBT
+     * @return tooltip lines for the table
+     * @see #TOOLTIP_CACHE
+     */
+    @OnlyIn(Dist.CLIENT)
+    private TooltipLines getTooltipLines(Tag tableTag) {
+        if (Language.getInstance() != tooltipLanguage) {
+            TOOLTIP_CACHE.invalidateAll();
+            tooltipLanguage = Language.getInstance();
+        }
+
+        TooltipLines lines = TOOLTIP_CACHE.getIfPresent(tableTag);
+        if (lines != null) {
+            return lines;
+        }
+
+        TruthTable table = TruthTable.fromNBT(tableTag);
+
+        Component circuitName = null;
+        String circuitNameText = "";
+        KnownTable knownTable = table.recognize();
+        if (knownTable != null) {
+            TranslatableComponent translationKey = knownTable.getTranslationKey();
+            circuitName = translationKey.plainCopy().withStyle(ChatFormatting.BLUE);
+            circuitNameText = translationKey.getString();
+        }
+
+        final var tableRows = new ArrayList<Component>();
+
+        // List inputs
+        if (table.getInputs().size() > 0) {
+            tableRows.add(dirListTextComponent("inputs", table.getInputs()));
+        }
+
+        // List outputs
+        if (table.getOutputs().size() > 0) {
+            tableRows.add(dirListTextComponent("outputs", table.getOutputs()));
+        }
+
+        lines = new TooltipLines(circuitName, circuitNameText, List.copyOf(tableRows));
+        // Item's tag is mutable, so the key has to be a copy
+        TOOLTIP_CACHE.put(tableTag.copy(), lines);
+        return lines;
+    }
+
     /**
      * Returns block's render type.
      *
@@ -0,0 +1,121 @@
+package tchojnacki.mcpcb.common.block;
+
+import net.minecraft.ChatFormatting;
+import net.minecraft.MethodsReturnNonnullByDefault;
+import net.minecraft.Util;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.network.chat.ChatType;
+import net.minecraft.network.chat.Component;
+import net.minecraft.network.chat.TranslatableComponent;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.levelgen.structure.BoundingBox;
+import net.minecraft.world.ticks.TickPriority;
+import org.jetbrains.annotations.Nullable;
+import tchojnacki.mcpcb.MCPCB;
+import tchojnacki.mcpcb.common.block.entities.CircuitBlockEntity;
+import tchojnacki.mcpcb.logic.CircuitBatch;
+import tchojnacki.mcpcb.logic.CircuitWorld;
+import tchojnacki.mcpcb.logic.OscillationTracker;
+import tchojnacki.mcpcb.logic.SimulatedCircuit;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+
+/**
+ * {@link CircuitWorld} backed by a server level, circuits are the block entities of circuit blocks.
+ *
+ * @param level the level
+ * @param block the circuit block, used for scheduled ticks and as the source of neighbour updates
+ * @see CircuitBlock
+ */
+@MethodsReturnNonnullByDefault
+@ParametersAreNonnullByDefault
+record LevelCircuitWorld(ServerLevel level, CircuitBlock block) implements CircuitWorld {
+    @Override
+    public long getGameTime() {
+        return level.getGameTime();
+    }
+
+    @Override
+    public boolean isLoaded(BlockPos pos) {
+        return level.isLoaded(pos);
+    }
+
+    @Nullable
+    @Override
+    public SimulatedCircuit getCircuit(BlockPos pos) {
+        return level.getBlockEntity(pos) instanceof CircuitBlockEntity circuitEntity ? circuitEntity : null;
+    }
+
+    @Override
+    public boolean hasSignal(BlockPos pos, Direction direction) {
+        return level.hasSignal(pos.relative(direction), direction);
+    }
+
+    @Override
+    public void scheduleTick(BlockPos pos, int delay) {
+        // ScheduledTick takes an absolute game time, let the level convert the delay
+        level.scheduleTick(pos, block, delay, TickPriority.VERY_HIGH);
+    }
+
+    @Override
+    public boolean hasScheduledTick(BlockPos pos) {
+        return level.getBlockTicks().hasScheduledTick(pos, block);
+    }
+
+    @Override
+    public void cancelTick(BlockPos pos) {
+        level.getBlockTicks().clearArea(new BoundingBox(pos));
+    }
+
+    @Override
+    public void updateNeighborsAt(BlockPos pos) {
+        level.updateNeighborsAt(pos, block);
+    }
+
+    @Override
+    public void updateNeighborsAtExceptFromFacing(BlockPos pos, Direction except) {
+        level.updateNeighborsAtExceptFromFacing(pos, block, except);
+    }
+
+    @Override
+    public void neighborChanged(BlockPos pos, BlockPos source) {
+        level.neighborChanged(pos, block, source);
+    }
+
+    @Override
+    public void enqueueBatch(BlockPos pos) {
+        CircuitBatch.enqueue(level, pos);
+    }
+
+    @Override
+    public OscillationTracker getOscillationTracker() {
+        return OscillationTracker.get(level);
+    }
+
+    /**
+     * Log the oscillation and send a chat message to all of the operators.
+     *
+     * @param pos      position of the circuit
+     * @param duration duration of the freeze, in ticks
+     */
+    @Override
+    public void reportOscillation(BlockPos pos, int duration) {
+        MCPCB.LOGGER.warn(
+                "Circuit at {} in {} is oscillating, freezing it for {} ticks.",
+                pos.toShortString(), level.dimension().location(), duration
+        );
+
+        Component message = new TranslatableComponent(
+                "util.mcpcb.circuit_oscillation",
+                pos.getX(), pos.getY(), pos.getZ(), level.dimension().location().toString()
+        ).withStyle(ChatFormatting.YELLOW);
+
+        for (ServerPlayer player : level.getServer().getPlayerList().getPlayers()) {
+            if (player.hasPermissions(2)) {
+                player.sendMessage(message, ChatType.SYSTEM, Util.NIL_UUID);
+            }
+        }
+    }
+}
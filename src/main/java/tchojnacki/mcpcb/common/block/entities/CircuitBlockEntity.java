@@ -2,6 +2,7 @@ package tchojnacki.mcpcb.common.block.entities;
 
 import net.minecraft.MethodsReturnNonnullByDefault;
 import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.network.Connection;
 import net.minecraft.network.chat.Component;
@@ -9,12 +10,16 @@ import net.minecraft.network.chat.TextComponent;
 import net.minecraft.network.protocol.Packet;
 import net.minecraft.network.protocol.game.ClientGamePacketListener;
 import net.minecraft.network.protocol.game.ClientboundBlockEntityDataPacket;
+import net.minecraft.world.level.block.HorizontalDirectionalBlock;
 import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.state.BlockState;
 import org.jetbrains.annotations.Nullable;
+import tchojnacki.mcpcb.logic.CircuitCluster;
+import tchojnacki.mcpcb.logic.CircuitEvaluator;
 import tchojnacki.mcpcb.logic.RelDir;
-import tchojnacki.mcpcb.logic.SideBoolMap;
+import tchojnacki.mcpcb.logic.SimulatedCircuit;
 import tchojnacki.mcpcb.logic.TruthTable;
+import tchojnacki.mcpcb.util.Config;
 import tchojnacki.mcpcb.util.Registration;
 
 import javax.annotation.ParametersAreNonnullByDefault;
@@ -22,69 +27,209 @@ import java.util.Objects;
 
 /**
  * Tile entity for the circuit block. Holds its custom name, the truth table as well as queued and current outputs.
+ * <p>
+ * There can be a lot of circuits in a single chunk, so the entity is kept thin: the truth table (and its evaluator)
+ * is a shared instance, and both outputs are packed into a single byte. Circuit state isn't moved out into per-chunk
+ * arrays, since the entity is still needed for the custom name, client sync and the model data.
+ * The truth table is saved in its packed form, which is a single int for any table a circuit can hold.
  *
  * @see tchojnacki.mcpcb.common.block.CircuitBlock
  */
 @MethodsReturnNonnullByDefault
 @ParametersAreNonnullByDefault
-public class CircuitBlockEntity extends BlockEntity {
+public class CircuitBlockEntity extends BlockEntity implements SimulatedCircuit {
     public final static String ID = "circuit_tile_entity";
 
-    private TextComponent customName;
+    /**
+     * Custom name serialized to JSON. It is only parsed when it is needed, which is rare compared to saving and syncing,
+     * and most circuits in a loaded chunk are never looked at.
+     */
+    @Nullable
+    private String customNameJson;
+
+    /**
+     * Truth table of the circuit, always an interned instance.
+     *
+     * @see TruthTable#intern(TruthTable)
+     */
+    private TruthTable truthTable = TruthTable.intern(TruthTable.empty());
 
-    private TruthTable truthTable = TruthTable.empty();
+    /**
+     * Side masks of both outputs. The lower four bits hold the actual output, which determines power level that
+     * the block currently gives. The upper four bits hold the queued output, which will become the actual output after one tick.
+     */
+    private byte outputs = 0;
+
+    /*
+    Fields changed since the last update packet, not saved. Update packets only carry changed fields,
+    players who start tracking the circuit receive everything through getUpdateTag.
+     */
+    private final static int SYNC_TABLE = 1;
+    private final static int SYNC_NAME = 2;
+    private final static int SYNC_OUTPUT = 4;
+    private byte unsyncedFields = SYNC_TABLE | SYNC_NAME | SYNC_OUTPUT;
 
     /**
-     * Map that determines power level that the block currently gives.
+     * Cluster the circuit belongs to, not saved (it gets recreated on demand).
+     *
+     * @see #getCluster()
      */
-    private SideBoolMap actualOutput = SideBoolMap.getEmpty();
+    @Nullable
+    private CircuitCluster cluster;
 
     /**
-     * Map that holds the output that will become {@link #actualOutput} after one tick.
+     * Whether the {@link #cluster} was already searched for. If it is true and the cluster is null,
+     * the circuit doesn't belong to any cluster.
      */
-    private SideBoolMap queuedOutput = SideBoolMap.getEmpty();
+    private boolean clusterResolved = false;
 
     public CircuitBlockEntity(BlockPos blockPos, BlockState blockState) {
         super(Registration.CIRCUIT_BLOCK_TILE_ENTITY.get(), blockPos, blockState);
     }
 
-    public SideBoolMap getActualOutput() {
-        return actualOutput;
+    /**
+     * @return side mask of the actual output
+     * @see #outputs
+     */
+    @Override
+    public int getActualOutputMask() {
+        return outputs & 0xF;
+    }
+
+    /**
+     * @return side mask of the queued output
+     * @see #outputs
+     */
+    @Override
+    public int getQueuedOutputMask() {
+        return (outputs >>> 4) & 0xF;
     }
 
     /**
      * Updates the output on tick - sets actual output to queued output.
      *
-     * @see #actualOutput
-     * @see #queuedOutput
+     * @see #outputs
      */
+    @Override
     public void updateOutput() {
-        actualOutput = queuedOutput;
-        setChanged();
+        setOutputs(getQueuedOutputMask(), getQueuedOutputMask());
     }
 
     /**
      * Whether the output is outdated.
      *
      * @return if actual output is different than queued output
-     * @see #actualOutput
-     * @see #queuedOutput
+     * @see #outputs
      */
+    @Override
     public boolean isOutputOutdated() {
-        return !actualOutput.equals(queuedOutput);
+        return getActualOutputMask() != getQueuedOutputMask();
+    }
+
+    /**
+     * Sets queued output to an already calculated side mask.
+     *
+     * @param outputMask side mask of the new queued output
+     * @see #outputs
+     */
+    @Override
+    public void setQueuedOutputMask(int outputMask) {
+        setOutputs(getActualOutputMask(), outputMask);
     }
 
     /**
-     * Sets queued output for a given input map.
+     * Set both outputs, the entity is only marked as changed if they differ from the current ones.
+     * Circuits receive a lot of neighbour updates which don't change their outputs, and marking the entity as
+     * changed makes its chunk get saved again.
      *
-     * @param inputMap inputs for which to calculate output using the truth table
-     * @return queued output after modification
-     * @see #queuedOutput
+     * @param actualMask side mask of the actual output
+     * @param queuedMask side mask of the queued output
      */
-    public SideBoolMap setQueuedOutput(SideBoolMap inputMap) {
-        queuedOutput = truthTable.getOutputsForInputs(inputMap);
+    private void setOutputs(int actualMask, int queuedMask) {
+        byte newOutputs = (byte) ((actualMask & 0xF) | ((queuedMask & 0xF) << 4));
+        if (newOutputs == outputs) {
+            return;
+        }
+
+        if ((actualMask & 0xF) != getActualOutputMask()) {
+            unsyncedFields |= SYNC_OUTPUT;
+        }
+
+        outputs = newOutputs;
         setChanged();
-        return queuedOutput;
+    }
+
+    /**
+     * @return direction the circuit is facing
+     */
+    @Override
+    public Direction getFacing() {
+        return getBlockState().getValue(HorizontalDirectionalBlock.FACING);
+    }
+
+    @Override
+    public boolean isClusterResolved() {
+        return clusterResolved && (cluster == null || cluster.isValid());
+    }
+
+    /**
+     * Get the cluster of directly connected circuits this circuit belongs to.
+     * Clusters are only used on the server side and only if enabled in the config.
+     *
+     * @return the cluster or null if the circuit doesn't belong to any or it wasn't searched for yet
+     * @see tchojnacki.mcpcb.logic.CircuitSimulator
+     */
+    @Nullable
+    @Override
+    public CircuitCluster getCluster() {
+        return cluster;
+    }
+
+    @Override
+    public void setCluster(@Nullable CircuitCluster cluster) {
+        this.cluster = cluster;
+        this.clusterResolved = true;
+    }
+
+    /**
+     * Invalidate the cluster of this circuit (for all of its members) and search for it again on next use.
+     */
+    @Override
+    public void invalidateCluster() {
+        if (cluster != null) {
+            cluster.invalidate();
+        }
+
+        cluster = null;
+        clusterResolved = false;
+    }
+
+    /**
+     * Called when the block entity gets added to the level, also when its chunk loads.
+     * Neighbouring circuits might now be able to join this circuit's cluster.
+     */
+    @Override
+    public void onLoad() {
+        super.onLoad();
+
+        if (level != null && !level.isClientSide) {
+            for (Direction direction : Direction.Plane.HORIZONTAL) {
+                BlockPos neighbourPos = worldPosition.relative(direction);
+                if (level.isLoaded(neighbourPos) && level.getBlockEntity(neighbourPos) instanceof CircuitBlockEntity neighbour) {
+                    neighbour.invalidateCluster();
+                }
+            }
+        }
+    }
+
+    /**
+     * Called when the block entity gets removed, also when its chunk unloads.
+     */
+    @Override
+    public void setRemoved() {
+        super.setRemoved();
+
+        invalidateCluster();
     }
 
     public boolean hasConnectionOnSide(RelDir side) {
@@ -100,63 +245,122 @@ public class CircuitBlockEntity extends BlockEntity {
     }
 
     public void setCustomName(TextComponent name) {
-        this.customName = name;
+        this.customNameJson = TextComponent.Serializer.toJson(name);
+        unsyncedFields |= SYNC_NAME;
     }
 
     @Nullable
     public TextComponent getCustomName() {
-        return customName;
+        return customNameJson != null ? (TextComponent) Component.Serializer.fromJson(customNameJson) : null;
     }
 
+    @Override
     public TruthTable getTruthTable() {
         return truthTable;
     }
 
+    @Override
+    public CircuitEvaluator getEvaluator() {
+        return truthTable.getEvaluator();
+    }
+
     /**
-     * Save the tile entity data to NBT tag.
+     * Set the truth table, keeping the interned instance if it didn't change.
      *
-     * @param parentTag tag to which we write the data
+     * @param table new truth table
      */
-    @Override
-    public void saveAdditional(CompoundTag parentTag) {
-        super.saveAdditional(parentTag);
+    private void setTruthTable(TruthTable table) {
+        table = TruthTable.intern(table);
+        if (table == truthTable) {
+            return;
+        }
 
-        parentTag.put("TruthTable", truthTable.toNBT());
+        truthTable = table;
+        unsyncedFields |= SYNC_TABLE;
+    }
 
-        if (customName != null) {
-            parentTag.putString("CustomName", TextComponent.Serializer.toJson(customName));
+    /**
+     * Write the name and the outputs, everything except for the truth table.
+     *
+     * @param parentTag tag to which we write the data
+     */
+    private void saveState(CompoundTag parentTag) {
+        if (customNameJson != null) {
+            parentTag.putString("CustomName", customNameJson);
         }
 
-        if (actualOutput.isntEmpty()) {
-            parentTag.putByte("ActualOutput", actualOutput.toByte());
+        if (getActualOutputMask() != 0) {
+            parentTag.putByte("ActualOutput", (byte) getActualOutputMask());
         }
 
-        if (queuedOutput.isntEmpty()) {
-            parentTag.putByte("QueuedOutput", queuedOutput.toByte());
+        if (getQueuedOutputMask() != 0) {
+            parentTag.putByte("QueuedOutput", (byte) getQueuedOutputMask());
         }
     }
 
+    /**
+     * Save the tile entity data to NBT tag.
+     *
+     * @param parentTag tag to which we write the data
+     */
+    @Override
+    public void saveAdditional(CompoundTag parentTag) {
+        super.saveAdditional(parentTag);
+
+        parentTag.put("TruthTable", truthTable.toNBT(Config.legacyTableFormat()));
+        saveState(parentTag);
+    }
+
     /**
      * Sent from server to client to update single tile entity.
+     * Players receiving it already know the rest of the entity, so only fields changed since the last packet are sent.
      *
-     * @return tile entity update packet
+     * @return tile entity update packet or null if nothing changed
      */
+    @Nullable
     @Override
     public Packet<ClientGamePacketListener> getUpdatePacket() {
+        if (unsyncedFields == 0) {
+            return null;
+        }
+
         CompoundTag tag = new CompoundTag();
-        saveAdditional(tag);
-        return ClientboundBlockEntityDataPacket.create(this);
+
+        if ((unsyncedFields & SYNC_TABLE) != 0) {
+            tag.put("TruthTable", truthTable.toNBT());
+        }
+
+        if ((unsyncedFields & SYNC_NAME) != 0 && customNameJson != null) {
+            tag.putString("CustomName", customNameJson);
+        }
+
+        if ((unsyncedFields & SYNC_OUTPUT) != 0) {
+            tag.putByte("ActualOutput", (byte) getActualOutputMask());
+        }
+
+        unsyncedFields = 0;
+        return ClientboundBlockEntityDataPacket.create(this, _blockEntity -> tag);
     }
 
     /**
      * Sent from server to client to update tile entities in batches.
+     * Queued output is only used on the server, so it isn't sent.
      *
      * @return updated tag
      */
     @Override
     public CompoundTag getUpdateTag() {
         CompoundTag tag = new CompoundTag();
-        saveAdditional(tag);
+        tag.put("TruthTable", truthTable.toNBT());
+
+        if (customNameJson != null) {
+            tag.putString("CustomName", customNameJson);
+        }
+
+        if (getActualOutputMask() != 0) {
+            tag.putByte("ActualOutput", (byte) getActualOutputMask());
+        }
+
         return tag;
     }
 
@@ -178,20 +382,21 @@ public class CircuitBlockEntity extends BlockEntity {
      * @param parentTag tag we are writing into
      */
     public void setFromParentTag(CompoundTag parentTag) {
-        if (parentTag.contains("TruthTable", CompoundTag.TAG_COMPOUND)) {
-            truthTable = TruthTable.fromNBT(parentTag.getCompound("TruthTable"));
+        if (parentTag.contains("TruthTable")) {
+            setTruthTable(TruthTable.fromNBT(parentTag.get("TruthTable")));
         }
 
         if (parentTag.contains("CustomName", CompoundTag.TAG_STRING)) {
-            customName = (TextComponent) Component.Serializer.fromJson(parentTag.getString("CustomName"));
+            customNameJson = parentTag.getString("CustomName");
+            unsyncedFields |= SYNC_NAME;
         }
 
         if (parentTag.contains("ActualOutput", CompoundTag.TAG_BYTE)) {
-            actualOutput = SideBoolMap.fromByte(parentTag.getByte("ActualOutput"));
+            outputs = (byte) ((outputs & 0xF0) | (parentTag.getByte("ActualOutput") & 0xF));
         }
 
         if (parentTag.contains("QueuedOutput", CompoundTag.TAG_BYTE)) {
-            queuedOutput = SideBoolMap.fromByte(parentTag.getByte("QueuedOutput"));
+            outputs = (byte) ((outputs & 0x0F) | ((parentTag.getByte("QueuedOutput") & 0xF) << 4));
         }
     }
 
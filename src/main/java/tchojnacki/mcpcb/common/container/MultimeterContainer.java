@@ -3,7 +3,6 @@ package tchojnacki.mcpcb.common.container;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import net.minecraft.MethodsReturnNonnullByDefault;
-import net.minecraft.nbt.CompoundTag;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.network.chat.Component;
 import net.minecraft.network.chat.TextComponent;
@@ -42,6 +41,9 @@ public class MultimeterContainer extends AbstractContainerMenu {
 
     public final static int MAX_NAME_CHARS = 15;
 
+    // Index of the output slot, after 36 inventory slots and 3 input slots
+    private final static int RESULT_SLOT = 39;
+
     // Items that can go into each slot
     private final static ImmutableList<ImmutableSet<Item>> SLOT_ALLOWED_ITEMS = new ImmutableList.Builder<ImmutableSet<Item>>()
             .add(
@@ -102,14 +104,20 @@ public class MultimeterContainer extends AbstractContainerMenu {
      */
     public static MultimeterContainer createContainerClientSide(int windowId, Inventory playerInv, FriendlyByteBuf extraData) {
         // Read truth table data from the packet
-        CompoundTag tableTag = extraData.readNbt();
-        TruthTable truthTable = tableTag != null ? TruthTable.fromNBT(tableTag) : TruthTable.empty();
+        TruthTable truthTable = TruthTable.fromBuffer(extraData);
 
         return new MultimeterContainer(windowId, playerInv, truthTable);
     }
 
-    private final TruthTable truthTable;
     private final CircuitBlock circuitBlock;
+
+    /**
+     * Unnamed circuit stack crafted in the container, built once since the table never changes.
+     * Results are its copies.
+     *
+     * @see #createResult()
+     */
+    private final ItemStack baseResult;
     private final ResultContainer resultInventory = new ResultContainer();
     private final SimpleContainer inputInventory = new SimpleContainer((int) inputRange().count()) {
         @Override
@@ -124,6 +132,18 @@ public class MultimeterContainer extends AbstractContainerMenu {
 
     private String name = "";
 
+    /**
+     * Name of the stack currently in the output slot, compared with {@link #name} to skip needless refreshes.
+     */
+    private String resultName = "";
+
+    /**
+     * Sequence number of the last rename packet applied on the server.
+     *
+     * @see #rename(int, String)
+     */
+    private int renameSequence = -1;
+
     /**
      * Container's constructor, use appropriate static factory method instead.
      *
@@ -133,8 +153,8 @@ public class MultimeterContainer extends AbstractContainerMenu {
     private MultimeterContainer(int id, Inventory playerInv, TruthTable table) {
         super(Registration.MULTIMETER_CONTAINER.get(), id);
 
-        this.truthTable = table;
         this.circuitBlock = (CircuitBlock) Registration.CIRCUIT_BLOCK.get();
+        this.baseResult = circuitBlock.stackFromTable(table);
 
         // Add hotbar slots
         for (int k = 0; k < 9; ++k) {
@@ -211,49 +231,116 @@ public class MultimeterContainer extends AbstractContainerMenu {
     }
 
     /**
-     * Whether the circuit item is craftable using current inputs.
+     * How many circuit items can be crafted using current inputs.
      * Note that all costs are equal zero in creative mode.
      *
+     * @return number of craftable circuits
+     */
+    private int craftableCount() {
+        int count = 64; // max stack size
+
+        for (int i = 0; i < inputSlotList.size(); i++) {
+            int cost = costList.get(i).get();
+            if (cost > 0) {
+                count = Math.min(count, Math.floorDiv(inputSlotList.get(i).getItem().getCount(), cost));
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Whether the circuit item is craftable using current inputs.
+     *
      * @return if we can craft a circuit item
+     * @see #craftableCount()
      */
     private boolean canCraft() {
-        return inputRange()
-                .map(i -> {
-                    int available = inputSlotList.get(i).getItem().getCount();
-                    int cost = costList.get(i).get();
-                    return cost > 0
-                            ? Math.floorDiv(available, cost)
-                            : 64; // max stack size
-                })
-                .min()
-                .orElse(0) > 0; // craftable count is bigger than zero
+        return craftableCount() > 0; // craftable count is bigger than zero
+    }
+
+    /**
+     * Craft as many circuits as current inputs allow (at most a stack) and move them to player's inventory.
+     * The inputs are consumed once for all of the circuits, instead of once per circuit.
+     *
+     * @param playerEntity player crafting the circuits
+     * @return {@link ItemStack#EMPTY} if nothing was crafted or the crafted stack otherwise
+     */
+    private ItemStack craftMax(Player playerEntity) {
+        ItemStack result = resultInventory.getItem(0);
+        int count = Math.min(craftableCount(), result.getMaxStackSize());
+        if (result.isEmpty() || count <= 0) {
+            return ItemStack.EMPTY;
+        }
+
+        ItemStack crafted = result.copy();
+        crafted.setCount(count);
+        moveItemStackTo(crafted, 0, 36, false);
+
+        // Only consume inputs of circuits which fit into the inventory
+        int moved = count - crafted.getCount();
+        if (moved <= 0) {
+            return ItemStack.EMPTY;
+        }
+
+        crafted.setCount(moved);
+        crafted.onCraftedBy(playerEntity.level, playerEntity, moved);
+
+        inputRange().forEach(i -> inputSlotList.get(i).remove(costList.get(i).get() * moved));
+        createResult();
+
+        return crafted;
     }
 
     /**
      * Refresh the output slot.
      * Put a circuit if it is currently craftable and an empty stack otherwise.
      * Called on when input slots are modified or name is changed.
+     * The output is only replaced if it is missing or has an outdated name.
      *
-     * @see CircuitBlock#stackFromTable(TruthTable)
+     * @see #baseResult
      */
     public void createResult() {
+        ItemStack current = this.resultInventory.getItem(0);
+
         if (canCraft()) {
-            ItemStack result = circuitBlock.stackFromTable(truthTable);
+            if (current.isEmpty() || !name.equals(resultName)) {
+                ItemStack result = baseResult.copy();
 
-            // Empty string is used to mark default name
-            if (!name.isEmpty()) {
-                result.setHoverName(new TextComponent(name));
-            }
+                // Empty string is used to mark default name
+                if (!name.isEmpty()) {
+                    result.setHoverName(new TextComponent(name));
+                }
 
-            this.resultInventory.setItem(0, result);
-        } else {
+                this.resultInventory.setItem(0, result);
+                resultName = name;
+            }
+        } else if (!current.isEmpty()) {
             this.resultInventory.setItem(0, ItemStack.EMPTY);
         }
     }
 
     public void setName(String newName) {
-        this.name = newName;
-        createResult();
+        if (!newName.equals(this.name)) {
+            this.name = newName;
+            createResult();
+        }
+    }
+
+    /**
+     * Apply a name received from the client, ignoring names older than the last applied one.
+     *
+     * @param sequence sequence number of the rename packet
+     * @param newName  already validated name
+     * @see tchojnacki.mcpcb.util.MultimeterScreenRenamePacket
+     */
+    public void rename(int sequence, String newName) {
+        if (sequence <= renameSequence) {
+            return; // superseded
+        }
+
+        renameSequence = sequence;
+        setName(newName);
     }
 
     /**
@@ -281,6 +368,8 @@ public class MultimeterContainer extends AbstractContainerMenu {
 
     /**
      * Handle quick moving (shift-clicking) of stacks.
+     * Shift-clicking the output crafts a whole stack at once (see {@link #craftMax(Player)}), vanilla keeps calling
+     * this method as long as the output isn't empty, so all of the inputs get used up.
      * Note that shift-clicking the output stack in creative mode will fill the entire inventory.
      * It is fully consistent with vanilla's way of doing things - take as many item as possible
      * (because here you can take infinitely many).
@@ -299,6 +388,10 @@ public class MultimeterContainer extends AbstractContainerMenu {
             return ItemStack.EMPTY;
         }
 
+        if (sourceSlotIdx == RESULT_SLOT) {
+            return craftMax(playerEntity);
+        }
+
         ItemStack sourceStack = sourceSlot.getItem();
         ItemStack copyOfSourceStack = sourceStack.copy();
 
@@ -316,7 +409,7 @@ public class MultimeterContainer extends AbstractContainerMenu {
             if (!lastMoveResult) {
                 return ItemStack.EMPTY;
             }
-        } else if (sourceSlotIdx < 40) { // Input & output
+        } else if (sourceSlotIdx < RESULT_SLOT) { // Input
             // Try moving to inventory
             if (!moveItemStackTo(sourceStack, 0, 36, false)) {
                 return ItemStack.EMPTY;
@@ -359,13 +452,13 @@ public class MultimeterContainer extends AbstractContainerMenu {
 
     /**
      * Make it possible to get truth table's item stack from screen.
-     * Client side only.
+     * Client side only. The stack is shared, it is only meant for rendering and must not be modified.
      *
      * @return item stack of circuit craftable in this container
-     * @see CircuitBlock#stackFromTable(TruthTable)
+     * @see #baseResult
      */
     @OnlyIn(Dist.CLIENT)
     public ItemStack getCircuitStack() {
-        return circuitBlock.stackFromTable(truthTable);
+        return baseResult;
     }
 }
@@ -11,6 +11,7 @@ import tchojnacki.mcpcb.logic.RelDir;
 import tchojnacki.mcpcb.logic.TruthTable;
 import tchojnacki.mcpcb.util.Registration;
 
+import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
 import java.util.Arrays;
 import java.util.Collections;
@@ -24,90 +25,53 @@ import java.util.Collections;
 public class CircuitGroup extends CreativeModeTab {
     public static final String ID = "mcpcb_circuit_tab";
 
+    /*
+    Functions below get input sets, where bit i holds the state of the i-th input.
+     */
+
+    // NOT, also used as the tab's icon
+    private static final TruthTable ICON_TABLE = TruthTable.fromMaskFunc(RelDir.BACK, RelDir.FRONT, m -> m == 0);
+
     /**
      * List of circuits to include in the tab.
      */
     private static final ImmutableList<TruthTable> TAB_ITEMS = ImmutableList.of(
             // Const true
-            TruthTable.fromBoolFunc(
-                    Collections.emptyList(),
-                    RelDir.FRONT,
-                    l -> true
-            ),
+            TruthTable.fromMaskFunc(Collections.emptyList(), RelDir.FRONT, m -> true),
             // Buffer
-            TruthTable.fromBoolFunc(
-                    RelDir.BACK,
-                    RelDir.FRONT,
-                    l -> l.get(0)
-            ),
+            TruthTable.fromMaskFunc(RelDir.BACK, RelDir.FRONT, m -> m == 1),
             // NOT
-            TruthTable.fromBoolFunc(
-                    RelDir.BACK,
-                    RelDir.FRONT,
-                    l -> !l.get(0)
-            ),
+            ICON_TABLE,
             // OR
-            TruthTable.fromBoolFunc(
-                    Arrays.asList(RelDir.RIGHT, RelDir.LEFT),
-                    RelDir.FRONT,
-                    l -> l.get(0) || l.get(1)
-            ),
+            TruthTable.fromMaskFunc(Arrays.asList(RelDir.RIGHT, RelDir.LEFT), RelDir.FRONT, m -> m != 0),
             // AND
-            TruthTable.fromBoolFunc(
-                    Arrays.asList(RelDir.RIGHT, RelDir.LEFT),
-                    RelDir.FRONT,
-                    l -> l.get(0) && l.get(1)
-            ),
+            TruthTable.fromMaskFunc(Arrays.asList(RelDir.RIGHT, RelDir.LEFT), RelDir.FRONT, m -> m == 0b11),
             // NOR
-            TruthTable.fromBoolFunc(
-                    Arrays.asList(RelDir.RIGHT, RelDir.LEFT),
-                    RelDir.FRONT,
-                    l -> !(l.get(0) || l.get(1))
-            ),
+            TruthTable.fromMaskFunc(Arrays.asList(RelDir.RIGHT, RelDir.LEFT), RelDir.FRONT, m -> m == 0),
             // NAND
-            TruthTable.fromBoolFunc(
-                    Arrays.asList(RelDir.RIGHT, RelDir.LEFT),
-                    RelDir.FRONT,
-                    l -> !(l.get(0) && l.get(1))
-            ),
+            TruthTable.fromMaskFunc(Arrays.asList(RelDir.RIGHT, RelDir.LEFT), RelDir.FRONT, m -> m != 0b11),
             // XOR
-            TruthTable.fromBoolFunc(
-                    Arrays.asList(RelDir.RIGHT, RelDir.LEFT),
-                    RelDir.FRONT,
-                    l -> l.get(0) != l.get(1)
-            ),
+            TruthTable.fromMaskFunc(Arrays.asList(RelDir.RIGHT, RelDir.LEFT), RelDir.FRONT, m -> m == 0b01 || m == 0b10),
             // XNOR
-            TruthTable.fromBoolFunc(
-                    Arrays.asList(RelDir.RIGHT, RelDir.LEFT),
-                    RelDir.FRONT,
-                    l -> l.get(0) == l.get(1)
-            ),
+            TruthTable.fromMaskFunc(Arrays.asList(RelDir.RIGHT, RelDir.LEFT), RelDir.FRONT, m -> m == 0b00 || m == 0b11),
             // OR (3)
-            TruthTable.fromBoolFunc(
-                    Arrays.asList(RelDir.RIGHT, RelDir.BACK, RelDir.LEFT),
-                    RelDir.FRONT,
-                    l -> l.get(0) || l.get(1) || l.get(2)
-            ),
+            TruthTable.fromMaskFunc(Arrays.asList(RelDir.RIGHT, RelDir.BACK, RelDir.LEFT), RelDir.FRONT, m -> m != 0),
             // AND (3)
-            TruthTable.fromBoolFunc(
-                    Arrays.asList(RelDir.RIGHT, RelDir.BACK, RelDir.LEFT),
-                    RelDir.FRONT,
-                    l -> l.get(0) && l.get(1) && l.get(2)
-            ),
+            TruthTable.fromMaskFunc(Arrays.asList(RelDir.RIGHT, RelDir.BACK, RelDir.LEFT), RelDir.FRONT, m -> m == 0b111),
             // NOR (3)
-            TruthTable.fromBoolFunc(
-                    Arrays.asList(RelDir.RIGHT, RelDir.BACK, RelDir.LEFT),
-                    RelDir.FRONT,
-                    l -> !(l.get(0) || l.get(1) || l.get(2))
-            ),
+            TruthTable.fromMaskFunc(Arrays.asList(RelDir.RIGHT, RelDir.BACK, RelDir.LEFT), RelDir.FRONT, m -> m == 0),
             // NAND (3)
-            TruthTable.fromBoolFunc(
-                    Arrays.asList(RelDir.RIGHT, RelDir.BACK, RelDir.LEFT),
-                    RelDir.FRONT,
-                    l -> !(l.get(0) && l.get(1) && l.get(2))
-            )
+            TruthTable.fromMaskFunc(Arrays.asList(RelDir.RIGHT, RelDir.BACK, RelDir.LEFT), RelDir.FRONT, m -> m != 0b111)
     );
 
+    /**
+     * Stacks built from {@link #TAB_ITEMS}, created on first use (the circuit block has to be registered by then).
+     *
+     * @see #getTabStacks()
+     */
+    @Nullable
+    private static ImmutableList<ItemStack> tabStacks;
+
     public CircuitGroup() {
         super(CircuitGroup.ID);
     }
@@ -119,36 +83,47 @@ public class CircuitGroup extends CreativeModeTab {
      */
     @Override
     public ItemStack makeIcon() {
-        return ((CircuitBlock) Registration.CIRCUIT_BLOCK.get()).stackFromTable(
-                // NOT
-                TruthTable.fromBoolFunc(
-                        RelDir.BACK,
-                        RelDir.FRONT,
-                        l -> !l.get(0)
-                )
-        );
+        return ((CircuitBlock) Registration.CIRCUIT_BLOCK.get()).stackFromTable(ICON_TABLE);
+    }
+
+    /**
+     * Get the stacks shown in the tab, building them if needed.
+     *
+     * @return named stacks of all of the {@link #TAB_ITEMS}
+     */
+    private static ImmutableList<ItemStack> getTabStacks() {
+        if (tabStacks == null) {
+            CircuitBlock circuitBlock = (CircuitBlock) Registration.CIRCUIT_BLOCK.get();
+            final var builder = new ImmutableList.Builder<ItemStack>();
+
+            for (TruthTable table : TAB_ITEMS) {
+                ItemStack itemStack = circuitBlock.stackFromTable(table);
+
+                KnownTable knownTable = table.recognize();
+                if (knownTable != null) {
+                    itemStack.setHoverName(knownTable.getTranslationKey());
+                }
+
+                builder.add(itemStack);
+            }
+
+            tabStacks = builder.build();
+        }
+
+        return tabStacks;
     }
 
     /**
      * Fill items within the tab.
-     * Add all previously specified items.
+     * Add copies of all previously specified items, as the caller is free to modify them.
      *
      * @param itemsToAdd list, to which we add items
      * @see #TAB_ITEMS
      */
     @Override
     public void fillItemList(NonNullList<ItemStack> itemsToAdd) {
-        CircuitBlock circuitBlock = (CircuitBlock) Registration.CIRCUIT_BLOCK.get();
-
-        for (TruthTable table : TAB_ITEMS) {
-            ItemStack itemStack = circuitBlock.stackFromTable(table);
-
-            KnownTable knownTable = table.recognize();
-            if (knownTable != null) {
-                itemStack.setHoverName(knownTable.getTranslationKey());
-            }
-
-            itemsToAdd.add(itemStack);
+        for (ItemStack itemStack : getTabStacks()) {
+            itemsToAdd.add(itemStack.copy());
         }
     }
 }
@@ -103,7 +103,7 @@ public class MultimeterItem extends Item {
                     winId, playerInv, truthTable
             );
             MenuProvider namedProvider = new SimpleMenuProvider(provider, MultimeterContainer.TITLE);
-            NetworkHooks.openGui((ServerPlayer) player, namedProvider, (packetBuffer) -> packetBuffer.writeNbt(truthTable.toNBT()));
+            NetworkHooks.openGui((ServerPlayer) player, namedProvider, truthTable::toBuffer);
         }
 
         return InteractionResult.SUCCESS;
@@ -3,6 +3,8 @@ package tchojnacki.mcpcb.common.item;
 import net.minecraft.MethodsReturnNonnullByDefault;
 import net.minecraft.Util;
 import net.minecraft.network.chat.ChatType;
+import net.minecraft.network.chat.TranslatableComponent;
+import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.InteractionResult;
 import net.minecraft.world.MenuProvider;
@@ -16,6 +18,7 @@ import net.minecraft.world.level.Level;
 import net.minecraftforge.network.NetworkHooks;
 import tchojnacki.mcpcb.MCPCB;
 import tchojnacki.mcpcb.common.container.ScrewdriverContainer;
+import tchojnacki.mcpcb.logic.BoardAccelerator;
 import tchojnacki.mcpcb.logic.BoardManager;
 import tchojnacki.mcpcb.logic.BoardManagerException;
 
@@ -23,6 +26,9 @@ import javax.annotation.ParametersAreNonnullByDefault;
 
 /**
  * Screwdriver item is used for circuit customization.
+ * Using it while sneaking toggles the acceleration of the breadboard.
+ *
+ * @see BoardAccelerator
  */
 @MethodsReturnNonnullByDefault
 @ParametersAreNonnullByDefault
@@ -52,7 +58,11 @@ public class ScrewdriverItem extends Item {
         try {
             BoardManager boardManager = new BoardManager(level, context.getClickedPos());
 
-            if (player != null && !level.isClientSide()) {
+            if (player != null && player.isShiftKeyDown()) {
+                if (level instanceof ServerLevel serverLevel) {
+                    toggleAcceleration(serverLevel, (ServerPlayer) player, boardManager);
+                }
+            } else if (player != null && !level.isClientSide()) {
                 MenuConstructor provider = (int winId, Inventory _playerInv, Player _playerEnt) -> ScrewdriverContainer.createContainerServerSide(winId, boardManager);
                 MenuProvider namedProvider = new SimpleMenuProvider(provider, ScrewdriverContainer.TITLE);
                 NetworkHooks.openGui((ServerPlayer) player, namedProvider);
@@ -70,4 +80,27 @@ public class ScrewdriverItem extends Item {
             return InteractionResult.FAIL;
         }
     }
+
+    /**
+     * Enable or disable the acceleration of a breadboard.
+     *
+     * @param level        breadboard's level
+     * @param player       player using the screwdriver
+     * @param boardManager board manager of the breadboard
+     * @throws BoardManagerException if the acceleration can't be enabled
+     */
+    private void toggleAcceleration(ServerLevel level, ServerPlayer player, BoardManager boardManager) throws BoardManagerException {
+        BoardAccelerator accelerator = BoardAccelerator.get(level);
+        String key;
+
+        if (accelerator.isAccelerated(boardManager.getNwCorner())) {
+            accelerator.disable(level, boardManager.getNwCorner());
+            key = "util.mcpcb.screwdriver.acceleration_disabled";
+        } else {
+            accelerator.enable(level, boardManager);
+            key = "util.mcpcb.screwdriver.acceleration_enabled";
+        }
+
+        player.sendMessage(new TranslatableComponent(key), ChatType.GAME_INFO, Util.NIL_UUID);
+    }
 }
@@ -0,0 +1,420 @@
+package tchojnacki.mcpcb.logic;
+
+import net.minecraft.MethodsReturnNonnullByDefault;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.block.state.properties.BooleanProperty;
+import net.minecraft.world.level.saveddata.SavedData;
+import net.minecraft.world.ticks.TickPriority;
+import tchojnacki.mcpcb.common.block.BreadboardBlock;
+import tchojnacki.mcpcb.util.Config;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Per-dimension registry of accelerated breadboards.
+ * <p>
+ * An accelerated breadboard works like a giant circuit block, without having to craft one. Its truth table is generated
+ * once, when the acceleration gets enabled. From then on inputs are read from blocks placed next to the input sockets
+ * (at the level of breadboard blocks) and output sockets power blocks placed next to them. Redstone on top of the board
+ * isn't simulated anymore: neighbour updates coming from inside of the board area are cancelled, so the redstone there
+ * stays in the state it had when the acceleration got enabled. It gets updated again once the acceleration is disabled.
+ * <p>
+ * Acceleration gets disabled when socket configuration changes or a breadboard block is removed. After modifying the
+ * redstone on top of the board, the acceleration has to be toggled again to regenerate the truth table.
+ * <p>
+ * Socket blocks mirror the state of their board in {@link BreadboardBlock#ACCELERATED} and
+ * {@link BreadboardBlock#POWERED}, so that the redstone engine can query their power without a lookup in here.
+ *
+ * @see tchojnacki.mcpcb.common.item.ScrewdriverItem
+ * @see tchojnacki.mcpcb.common.block.BreadboardBlock
+ */
+@MethodsReturnNonnullByDefault
+@ParametersAreNonnullByDefault
+public class BoardAccelerator extends SavedData {
+    public final static String DATA_NAME = "mcpcb_accelerated_boards";
+
+    // Same delay as a single circuit, in game ticks
+    private final static int DELAY = 1;
+
+    /**
+     * Accelerated boards, keyed by their north-west corner.
+     */
+    private final HashMap<BlockPos, Board> boards = new HashMap<>();
+
+    /**
+     * Positions of socket blocks of all accelerated boards, mapped to north-west corners of their boards.
+     * Not saved, recreated from {@link #boards}.
+     */
+    private final HashMap<BlockPos, BlockPos> socketBlocks = new HashMap<>();
+
+    /**
+     * Columns (see {@link ChunkPos#asLong(int, int)}) of all accelerated boards, mapped to north-west corners of their boards.
+     * Not saved, recreated from {@link #boards}.
+     */
+    private final HashMap<Long, BlockPos> boardColumns = new HashMap<>();
+
+    /**
+     * State of a single accelerated board.
+     */
+    private static class Board {
+        private final TruthTable table;
+        private int actualOutput;
+        private int queuedOutput;
+
+        private Board(TruthTable table, int actualOutput) {
+            this.table = table;
+            this.actualOutput = actualOutput;
+            this.queuedOutput = actualOutput;
+        }
+    }
+
+    /**
+     * Get accelerator for a given level, creating or loading it if necessary.
+     *
+     * @param level server level
+     * @return board accelerator of the level
+     */
+    public static BoardAccelerator get(ServerLevel level) {
+        return level.getDataStorage().computeIfAbsent(BoardAccelerator::load, BoardAccelerator::new, DATA_NAME);
+    }
+
+    /**
+     * Get the direction of a socket for a side of the board truth table.
+     * Board truth tables are generated as if the board was facing north.
+     *
+     * @param side side of the truth table
+     * @return absolute direction of the socket
+     * @see tchojnacki.mcpcb.logic.graphs.ReducedCircuitGraph#getTruthTable()
+     */
+    private static Direction socketDirection(RelDir side) {
+        return side.offsetFrom(Direction.NORTH);
+    }
+
+    /**
+     * Get positions of the socket blocks on one side of a board.
+     *
+     * @param nwCorner  north-west corner of the board
+     * @param direction side of the board
+     * @return list of six socket blocks
+     */
+    private static List<BlockPos> socketBlocksOf(BlockPos nwCorner, Direction direction) {
+        final int last = BoardManager.BOARD_SIZE - 1;
+        final var blocks = new ArrayList<BlockPos>();
+
+        for (int i = 1; i < last; i++) {
+            blocks.add(switch (direction) {
+                case NORTH -> nwCorner.offset(i, 0, 0);
+                case EAST -> nwCorner.offset(last, 0, i);
+                case SOUTH -> nwCorner.offset(i, 0, last);
+                case WEST -> nwCorner.offset(0, 0, i);
+                default -> throw new IllegalArgumentException("Direction must be in the XZ plane.");
+            });
+        }
+
+        return blocks;
+    }
+
+    /**
+     * Add or remove the columns of a board from {@link #boardColumns}.
+     *
+     * @param nwCorner north-west corner of the board
+     * @param covered  whether the board is accelerated
+     */
+    private void setColumnsCovered(BlockPos nwCorner, boolean covered) {
+        for (int z = 0; z < BoardManager.BOARD_SIZE; z++) {
+            for (int x = 0; x < BoardManager.BOARD_SIZE; x++) {
+                long column = ChunkPos.asLong(nwCorner.getX() + x, nwCorner.getZ() + z);
+                if (covered) {
+                    boardColumns.put(column, nwCorner);
+                } else {
+                    boardColumns.remove(column);
+                }
+            }
+        }
+    }
+
+    public boolean isAccelerated(BlockPos nwCorner) {
+        return boards.containsKey(nwCorner);
+    }
+
+    /**
+     * Checks if a position lies in the board area (above the breadboard blocks) of an accelerated board.
+     * Called for every neighbour update in the level, so it has to be cheap.
+     *
+     * @param pos position to check
+     * @return whether neighbour updates from {@code pos} should be suppressed
+     * @see BoardManager#outsideOfBoardArea(BlockPos)
+     */
+    public boolean isInsideAcceleratedBoard(BlockPos pos) {
+        if (boards.isEmpty()) {
+            return false;
+        }
+
+        BlockPos nwCorner = boardColumns.get(ChunkPos.asLong(pos.getX(), pos.getZ()));
+        return nwCorner != null && pos.getY() > nwCorner.getY();
+    }
+
+    /**
+     * Enable acceleration for a board.
+     *
+     * @param level        board's level
+     * @param boardManager manager of the board
+     * @throws BoardManagerException if the circuit built on the board is cyclic
+     */
+    public void enable(ServerLevel level, BoardManager boardManager) throws BoardManagerException {
+        TruthTable table = boardManager.generateTruthTable(level);
+        if (table == null) {
+            throw new BoardManagerException("graph_is_cyclic");
+        }
+
+        BlockPos nwCorner = boardManager.getNwCorner().immutable();
+        boards.put(nwCorner, new Board(table, 0));
+        setColumnsCovered(nwCorner, true);
+        for (Direction direction : Direction.Plane.HORIZONTAL) {
+            socketBlocksOf(nwCorner, direction).forEach(block -> socketBlocks.put(block, nwCorner));
+            // Output sockets become signal sources, let redstone connect to them
+            setSocketProperty(level, nwCorner, direction, BreadboardBlock.ACCELERATED, true, Block.UPDATE_ALL);
+        }
+        setDirty();
+
+        update(level, nwCorner);
+    }
+
+    /**
+     * Disable acceleration of a board, does nothing if the board isn't accelerated.
+     *
+     * @param level    board's level
+     * @param nwCorner north-west corner of the board
+     */
+    public void disable(ServerLevel level, BlockPos nwCorner) {
+        Board board = boards.remove(nwCorner);
+        if (board == null) {
+            return;
+        }
+
+        setColumnsCovered(nwCorner, false);
+        for (Direction direction : Direction.Plane.HORIZONTAL) {
+            socketBlocksOf(nwCorner, direction).forEach(socketBlocks::remove);
+            setSocketProperty(level, nwCorner, direction, BreadboardBlock.POWERED, false, Block.UPDATE_CLIENTS);
+            setSocketProperty(level, nwCorner, direction, BreadboardBlock.ACCELERATED, false, Block.UPDATE_ALL);
+        }
+        setDirty();
+
+        // Outputs are no longer powered
+        if (board.actualOutput != 0) {
+            notifyOutputs(level, nwCorner, board.table, board.actualOutput);
+        }
+
+        resyncBoardArea(level, nwCorner);
+    }
+
+    /**
+     * Update the redstone on top of a board, after it didn't receive neighbour updates while the board was accelerated.
+     * Every block in the two layers above the breadboard blocks (where the board's circuit is built) gets updated.
+     *
+     * @param level    board's level
+     * @param nwCorner north-west corner of the board
+     * @see tchojnacki.mcpcb.logic.graphs.CGBuilder
+     */
+    private static void resyncBoardArea(ServerLevel level, BlockPos nwCorner) {
+        Block block = level.getBlockState(nwCorner).getBlock();
+
+        for (int y = 1; y <= 2; y++) {
+            for (int z = 0; z < BoardManager.BOARD_SIZE; z++) {
+                for (int x = 0; x < BoardManager.BOARD_SIZE; x++) {
+                    level.updateNeighborsAt(nwCorner.offset(x, y, z), block);
+                }
+            }
+        }
+    }
+
+    /**
+     * Disable acceleration of the board containing a given breadboard block, if there is one.
+     *
+     * @param level    board's level
+     * @param blockPos position of any breadboard block
+     */
+    public void disableContaining(ServerLevel level, BlockPos blockPos) {
+        for (BlockPos nwCorner : List.copyOf(boards.keySet())) {
+            if (nwCorner.getY() == blockPos.getY() &&
+                    nwCorner.getX() <= blockPos.getX() && blockPos.getX() < nwCorner.getX() + BoardManager.BOARD_SIZE &&
+                    nwCorner.getZ() <= blockPos.getZ() && blockPos.getZ() < nwCorner.getZ() + BoardManager.BOARD_SIZE) {
+                disable(level, nwCorner);
+            }
+        }
+    }
+
+    /**
+     * Get the north-west corner of an accelerated board a given socket block belongs to.
+     *
+     * @param socketPos position of a socket block
+     * @return corner of the board or null if the block isn't a socket of an accelerated board
+     */
+    @Nullable
+    public BlockPos getBoardOfSocket(BlockPos socketPos) {
+        return socketBlocks.get(socketPos);
+    }
+
+    /**
+     * Read the inputs of a board and schedule an output update if its outputs change.
+     *
+     * @param level    board's level
+     * @param nwCorner north-west corner of the board
+     */
+    public void update(ServerLevel level, BlockPos nwCorner) {
+        Board board = boards.get(nwCorner);
+        if (board == null) {
+            return;
+        }
+
+        int inputMask = 0;
+        for (RelDir input : board.table.getInputs()) {
+            Direction direction = socketDirection(input);
+
+            for (BlockPos socketBlock : socketBlocksOf(nwCorner, direction)) {
+                BlockPos outsidePos = socketBlock.relative(direction);
+                if (level.isLoaded(outsidePos) && level.hasSignal(outsidePos, direction)) {
+                    inputMask |= 1 << input.ordinal();
+                    break;
+                }
+            }
+        }
+
+        board.queuedOutput = board.table.getOutputMask(inputMask);
+        if (board.queuedOutput != board.actualOutput) {
+            Block block = level.getBlockState(nwCorner).getBlock();
+            level.scheduleTick(nwCorner, block, DELAY, TickPriority.VERY_HIGH);
+        }
+    }
+
+    /**
+     * Called on tick scheduled in {@link #update(ServerLevel, BlockPos)}, applies the queued output.
+     *
+     * @param level    board's level
+     * @param nwCorner north-west corner of the board
+     */
+    public void tick(ServerLevel level, BlockPos nwCorner) {
+        Board board = boards.get(nwCorner);
+        if (board == null || board.queuedOutput == board.actualOutput) {
+            return;
+        }
+
+        int changed = board.queuedOutput ^ board.actualOutput;
+        board.actualOutput = board.queuedOutput;
+        setDirty();
+
+        for (RelDir output : board.table.getOutputs()) {
+            if ((changed & (1 << output.ordinal())) != 0) {
+                boolean powered = (board.actualOutput & (1 << output.ordinal())) != 0;
+                // Neighbours are notified below, together with the blocks they might strongly power
+                setSocketProperty(level, nwCorner, socketDirection(output), BreadboardBlock.POWERED, powered, Block.UPDATE_CLIENTS);
+            }
+        }
+
+        notifyOutputs(level, nwCorner, board.table, changed);
+    }
+
+    /**
+     * Set a block state property of breadboard blocks of a socket, skipping blocks which already have the value.
+     *
+     * @param level     board's level
+     * @param nwCorner  north-west corner of the board
+     * @param direction side of the board
+     * @param property  {@link BreadboardBlock#ACCELERATED} or {@link BreadboardBlock#POWERED}
+     * @param value     new value of the property
+     * @param flags     block update flags passed to {@link ServerLevel#setBlock(BlockPos, BlockState, int)}
+     */
+    private static void setSocketProperty(ServerLevel level, BlockPos nwCorner, Direction direction, BooleanProperty property, boolean value, int flags) {
+        for (BlockPos socketBlock : socketBlocksOf(nwCorner, direction)) {
+            BlockState blockState = level.getBlockState(socketBlock);
+            if (blockState.getBlock() instanceof BreadboardBlock && blockState.getValue(property) != value) {
+                level.setBlock(socketBlock, blockState.setValue(property, value), flags);
+            }
+        }
+    }
+
+    /**
+     * Update blocks placed next to output sockets (and blocks they might strongly power).
+     *
+     * @param level    board's level
+     * @param nwCorner north-west corner of the board
+     * @param table    truth table of the board
+     * @param sides    side mask of outputs which changed
+     */
+    private void notifyOutputs(ServerLevel level, BlockPos nwCorner, TruthTable table, int sides) {
+        for (RelDir output : table.getOutputs()) {
+            if ((sides & (1 << output.ordinal())) == 0) {
+                continue;
+            }
+
+            Direction direction = socketDirection(output);
+            for (BlockPos socketBlock : socketBlocksOf(nwCorner, direction)) {
+                BlockPos outsidePos = socketBlock.relative(direction);
+                Block block = level.getBlockState(socketBlock).getBlock();
+
+                level.neighborChanged(outsidePos, block, socketBlock);
+                level.updateNeighborsAtExceptFromFacing(outsidePos, block, direction.getOpposite());
+            }
+        }
+    }
+
+    /**
+     * Save accelerated boards to NBT.
+     *
+     * @param tag tag to which we write the data
+     * @return {@code tag}
+     */
+    @Override
+    public CompoundTag save(CompoundTag tag) {
+        final var list = new ListTag();
+
+        boards.forEach((nwCorner, board) -> {
+            final var boardTag = new CompoundTag();
+            boardTag.putLong("Corner", nwCorner.asLong());
+            boardTag.put("TruthTable", board.table.toNBT(Config.legacyTableFormat()));
+            boardTag.putByte("Output", (byte) board.actualOutput);
+            list.add(boardTag);
+        });
+
+        tag.put("Boards", list);
+        return tag;
+    }
+
+    /**
+     * Load accelerated boards from NBT.
+     *
+     * @param tag saved data
+     * @return loaded accelerator
+     */
+    private static BoardAccelerator load(CompoundTag tag) {
+        final var accelerator = new BoardAccelerator();
+
+        for (Tag element : tag.getList("Boards", Tag.TAG_COMPOUND)) {
+            CompoundTag boardTag = (CompoundTag) element;
+            BlockPos nwCorner = BlockPos.of(boardTag.getLong("Corner"));
+
+            accelerator.boards.put(nwCorner, new Board(
+                    TruthTable.fromNBT(boardTag.get("TruthTable")),
+                    boardTag.getByte("Output") & 0xF
+            ));
+            for (Direction direction : Direction.Plane.HORIZONTAL) {
+                socketBlocksOf(nwCorner, direction).forEach(block -> accelerator.socketBlocks.put(block, nwCorner));
+            }
+            accelerator.setColumnsCovered(nwCorner, true);
+        }
+
+        return accelerator;
+    }
+}
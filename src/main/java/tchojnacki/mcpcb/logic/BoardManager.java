@@ -4,6 +4,7 @@ import com.google.common.collect.ImmutableMap;
 import net.minecraft.MethodsReturnNonnullByDefault;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
+import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.state.BlockState;
 import tchojnacki.mcpcb.common.block.BreadboardBlock;
@@ -42,6 +43,15 @@ public class BoardManager {
         }
 
         Objects.requireNonNull(sockets.get(direction)).setState(state, level);
+
+        // The truth table of an accelerated board would be outdated
+        if (level instanceof ServerLevel serverLevel) {
+            BoardAccelerator.get(serverLevel).disable(serverLevel, nwCorner);
+        }
+    }
+
+    public BlockPos getNwCorner() {
+        return nwCorner;
     }
 
     public BoardSocket getSocket(Direction direction) {
@@ -1,8 +1,10 @@
 package tchojnacki.mcpcb.logic;
 
 import net.minecraft.MethodsReturnNonnullByDefault;
+import net.minecraft.core.Direction;
 import net.minecraft.util.StringRepresentable;
 
+import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
 
 /**
@@ -36,6 +38,22 @@ public enum BreadboardKindEnum implements StringRepresentable {
         };
     }
 
+    /**
+     * Get the side of the board a socket block is on.
+     *
+     * @return direction of the socket or null for {@link #NORMAL}
+     */
+    @Nullable
+    public Direction getDirection() {
+        return switch (this) {
+            case NORMAL -> null;
+            case INPUT_NORTH, OUTPUT_NORTH -> Direction.NORTH;
+            case INPUT_EAST, OUTPUT_EAST -> Direction.EAST;
+            case INPUT_SOUTH, OUTPUT_SOUTH -> Direction.SOUTH;
+            case INPUT_WEST, OUTPUT_WEST -> Direction.WEST;
+        };
+    }
+
     public static BreadboardKindEnum getKindForSocket(BoardSocket socket) throws IllegalArgumentException {
         int data2D = socket.getDirection().get2DDataValue(); // 0 - S, 1 - W, 2 - N, 3 - E
         if (data2D == -1) {
@@ -0,0 +1,92 @@
+package tchojnacki.mcpcb.logic;
+
+import net.minecraft.MethodsReturnNonnullByDefault;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.Level;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Batch evaluation of circuits, an alternative to evaluating each circuit as soon as it receives a neighbour update.
+ * <p>
+ * Circuits due for evaluation are collected and evaluated together before and after each level tick, in three phases:
+ * inputs of all circuits are read from the world, truth tables are evaluated (in parallel, if the batch is big enough,
+ * since it is a pure function of the input masks) and finally outputs are applied and ticks scheduled in a
+ * deterministic order. *
+ * @see tchojnacki.mcpcb.common.block.CircuitBlock#evaluateBatch(net.minecraft.server.level.ServerLevel, List)
+ * @see tchojnacki.mcpcb.util.ServerEvents
+ */
+@MethodsReturnNonnullByDefault
+@ParametersAreNonnullByDefault
+public final class CircuitBatch {
+    /**
+     * Circuits waiting for evaluation, per level. Only accessed from the server thread.
+     */
+    private final static WeakHashMap<Level, Set<BlockPos>> PENDING = new WeakHashMap<>();
+
+    /**
+     * All of the methods are static, disallow instantiation.
+     *
+     * @throws UnsupportedOperationException always throws
+     */
+    private CircuitBatch() throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("Cannot be instantiated.");
+    }
+
+    /**
+     * Add a circuit to the batch of its level.
+     *
+     * @param level    circuit's level
+     * @param blockPos circuit's position
+     */
+    public static void enqueue(Level level, BlockPos blockPos) {
+        PENDING.computeIfAbsent(level, _level -> new HashSet<>()).add(blockPos.immutable());
+    }
+
+    /**
+     * Remove all circuits from the batch of a level.
+     *
+     * @param level the level
+     * @return positions of the circuits, sorted so that the processing order is deterministic
+     */
+    public static List<BlockPos> drain(Level level) {
+        Set<BlockPos> pending = PENDING.remove(level);
+        if (pending == null) {
+            return Collections.emptyList();
+        }
+
+        final var sorted = new ArrayList<>(pending);
+        sorted.sort(Comparator.comparingLong(BlockPos::asLong));
+        return sorted;
+    }
+
+    /**
+     * Evaluate truth tables for given input masks.
+     *
+     * @param tables            truth tables of the circuits
+     * @param inputMasks        input side masks, in the same order as {@code tables}
+     * @param parallelThreshold minimum number of circuits for which the evaluation happens in parallel
+     * @return output side masks, in the same order as {@code tables}
+     * @throws IllegalArgumentException if the arrays have different lengths
+     */
+    public static int[] evaluate(TruthTable[] tables, int[] inputMasks, int parallelThreshold) throws IllegalArgumentException {
+        if (tables.length != inputMasks.length) {
+            throw new IllegalArgumentException("Arrays have different lengths.");
+        }
+
+        final int[] outputs = new int[tables.length];
+
+        if (tables.length >= parallelThreshold) {
+            // Each index is written by a single task, so no synchronization is needed
+            IntStream.range(0, tables.length).parallel().forEach(i -> outputs[i] = tables[i].getOutputMask(inputMasks[i]));
+        } else {
+            for (int i = 0; i < tables.length; i++) {
+                outputs[i] = tables[i].getOutputMask(inputMasks[i]);
+            }
+        }
+
+        return outputs;
+    }
+}
@@ -0,0 +1,334 @@
+package tchojnacki.mcpcb.logic;
+
+import com.google.common.collect.ImmutableList;
+import net.minecraft.MethodsReturnNonnullByDefault;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.*;
+import java.util.function.BiPredicate;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A group of circuit blocks wired directly into each other (an output of one circuit touching an input of another),
+ * with the links between them compiled in advance.
+ * <p>
+ * Members still change their outputs one by one, each after its own delay. The cluster lets them read inputs driven
+ * by other members directly and tells which of their outputs lead outside the cluster, so that updates are only
+ * sent where somebody can see them. Members are stored in topological order.
+ * Clusters containing a feedback loop are never created.
+ *
+ * @see CircuitSimulator
+ */
+@MethodsReturnNonnullByDefault
+@ParametersAreNonnullByDefault
+public final class CircuitCluster {
+    /**
+     * Marks an input which isn't driven by any member of the cluster, its state has to be read from the world.
+     */
+    public final static int BOUNDARY = -1;
+
+    private final static int SIDES = RelDir.values().length;
+
+    private final ImmutableList<BlockPos> members;
+    private final HashMap<BlockPos, Integer> indices;
+    private final TruthTable[] tables;
+    private final Direction[] facings;
+
+    /**
+     * {@code sources[i][s]} is the index of the member driving input {@code s} of the i-th member or {@link #BOUNDARY}.
+     */
+    private final int[][] sources;
+
+    /**
+     * {@code sourceSides[i][s]} is the (relative) output side of the member driving input {@code s} of the i-th member.
+     */
+    private final int[][] sourceSides;
+
+    /**
+     * Side masks of outputs leading outside the cluster, the only outputs visible to the rest of the world.
+     */
+    private final int[] boundaryOutputs;
+
+    private boolean valid = true;
+
+    private CircuitCluster(ImmutableList<BlockPos> members, TruthTable[] tables, Direction[] facings, int[][] sources, int[][] sourceSides, int[] boundaryOutputs) {
+        this.members = members;
+        this.tables = tables;
+        this.facings = facings;
+        this.sources = sources;
+        this.sourceSides = sourceSides;
+        this.boundaryOutputs = boundaryOutputs;
+
+        this.indices = new HashMap<>();
+        for (int i = 0; i < members.size(); i++) {
+            indices.put(members.get(i), i);
+        }
+    }
+
+    /**
+     * Compile a cluster from a list of circuits.
+     * Circuits are linked if one of them has an output on the side touching an input of the other one.
+     *
+     * @param positions positions of the circuits
+     * @param tables    truth tables of the circuits, in the same order as {@code positions}
+     * @param facings   facing directions of the circuits, in the same order as {@code positions}
+     * @return compiled cluster
+     * @throws IllegalArgumentException if the lists have different sizes or the circuits form a feedback loop
+     */
+    public static CircuitCluster compile(List<BlockPos> positions, List<TruthTable> tables, List<Direction> facings) throws IllegalArgumentException {
+        final int n = positions.size();
+        if (tables.size() != n || facings.size() != n) {
+            throw new IllegalArgumentException("Cluster description lists have different sizes.");
+        }
+
+        final var indexOf = new HashMap<BlockPos, Integer>();
+        for (int i = 0; i < n; i++) {
+            indexOf.put(positions.get(i), i);
+        }
+
+        // Find links between the circuits
+        final int[][] sources = new int[n][SIDES];
+        final int[][] sourceSides = new int[n][SIDES];
+        final int[] internalOutputs = new int[n];
+        final int[] inDegree = new int[n];
+        final var successors = new ArrayList<List<Integer>>();
+        for (int i = 0; i < n; i++) {
+            successors.add(new ArrayList<>());
+        }
+
+        for (int i = 0; i < n; i++) {
+            Arrays.fill(sources[i], BOUNDARY);
+
+            for (RelDir input : tables.get(i).getInputs()) {
+                Direction direction = input.offsetFrom(facings.get(i));
+                Integer j = indexOf.get(positions.get(i).relative(direction));
+
+                if (j != null) {
+                    RelDir sourceSide = RelDir.getOffset(facings.get(j), direction.getOpposite());
+                    if (tables.get(j).hasOutput(sourceSide)) {
+                        sources[i][input.ordinal()] = j;
+                        sourceSides[i][input.ordinal()] = sourceSide.ordinal();
+                        internalOutputs[j] |= 1 << sourceSide.ordinal();
+                        successors.get(j).add(i);
+                        inDegree[i]++;
+                    }
+                }
+            }
+        }
+
+        // Sort the circuits topologically (Kahn's algorithm)
+        final int[] order = new int[n];
+        final var queue = new ArrayDeque<Integer>();
+        int sorted = 0;
+        for (int i = 0; i < n; i++) {
+            if (inDegree[i] == 0) {
+                queue.add(i);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int current = queue.remove();
+            order[sorted++] = current;
+            for (int next : successors.get(current)) {
+                if (--inDegree[next] == 0) {
+                    queue.add(next);
+                }
+            }
+        }
+
+        if (sorted != n) {
+            throw new IllegalArgumentException("Circuit cluster contains a feedback loop.");
+        }
+
+        // Reorder everything so that members are stored in topological order
+        final int[] newIndex = new int[n];
+        for (int k = 0; k < n; k++) {
+            newIndex[order[k]] = k;
+        }
+
+        final var memberBuilder = ImmutableList.<BlockPos>builder();
+        final var sortedTables = new TruthTable[n];
+        final var sortedFacings = new Direction[n];
+        final int[][] sortedSources = new int[n][];
+        final int[][] sortedSourceSides = new int[n][];
+        final int[] sortedBoundaryOutputs = new int[n];
+
+        for (int k = 0; k < n; k++) {
+            int i = order[k];
+
+            memberBuilder.add(positions.get(i).immutable());
+            sortedTables[k] = tables.get(i);
+            sortedFacings[k] = facings.get(i);
+            sortedSources[k] = Arrays.stream(sources[i]).map(s -> s == BOUNDARY ? BOUNDARY : newIndex[s]).toArray();
+            sortedSourceSides[k] = sourceSides[i];
+            sortedBoundaryOutputs[k] = tables.get(i).getOutputSideMask() & ~internalOutputs[i];
+        }
+
+        return new CircuitCluster(
+                memberBuilder.build(),
+                sortedTables,
+                sortedFacings,
+                sortedSources,
+                sortedSourceSides,
+                sortedBoundaryOutputs
+        );
+    }
+
+    /**
+     * Find the cluster a circuit belongs to, by following the links between loaded circuits.
+     * Visited circuits which don't belong to any cluster get marked as such, so that they don't repeat the search.
+     *
+     * @param world   circuit's world
+     * @param start   position of the circuit
+     * @param maxSize maximum number of members
+     * @return compiled cluster, or null if there is nothing to fuse (single circuit), the cluster is too big or it can't be compiled
+     */
+    @Nullable
+    public static CircuitCluster find(CircuitWorld world, BlockPos start, int maxSize) {
+        final var visited = new LinkedHashMap<BlockPos, SimulatedCircuit>();
+        final var queue = new ArrayDeque<BlockPos>();
+
+        SimulatedCircuit startCircuit = world.getCircuit(start);
+        if (startCircuit == null) {
+            return null;
+        }
+
+        visited.put(start.immutable(), startCircuit);
+        queue.add(start.immutable());
+
+        while (!queue.isEmpty()) {
+            BlockPos pos = queue.remove();
+            SimulatedCircuit circuit = Objects.requireNonNull(visited.get(pos));
+            Direction facing = circuit.getFacing();
+
+            for (RelDir side : RelDir.values()) {
+                if (!circuit.getTruthTable().hasInputOrOutput(side)) {
+                    continue;
+                }
+
+                Direction direction = side.offsetFrom(facing);
+                BlockPos neighbourPos = pos.relative(direction);
+
+                if (visited.containsKey(neighbourPos) || !world.isLoaded(neighbourPos)) {
+                    continue;
+                }
+
+                SimulatedCircuit neighbour = world.getCircuit(neighbourPos);
+                if (neighbour != null) {
+                    RelDir neighbourSide = RelDir.getOffset(neighbour.getFacing(), direction.getOpposite());
+
+                    // Output to input or input to output
+                    boolean linked = circuit.getTruthTable().hasOutput(side) && neighbour.getTruthTable().hasInput(neighbourSide)
+                            || circuit.getTruthTable().hasInput(side) && neighbour.getTruthTable().hasOutput(neighbourSide);
+
+                    if (linked) {
+                        if (visited.size() >= maxSize) {
+                            markUnclustered(visited.values());
+                            return null;
+                        }
+
+                        visited.put(neighbourPos, neighbour);
+                        queue.add(neighbourPos);
+                    }
+                }
+            }
+        }
+
+        if (visited.size() < 2) {
+            markUnclustered(visited.values());
+            return null;
+        }
+
+        try {
+            return compile(
+                    new ArrayList<>(visited.keySet()),
+                    visited.values().stream().map(SimulatedCircuit::getTruthTable).toList(),
+                    visited.values().stream().map(SimulatedCircuit::getFacing).toList()
+            );
+        } catch (IllegalArgumentException exception) {
+            markUnclustered(visited.values());
+            return null;
+        }
+    }
+
+    /**
+     * Remember that the circuits don't belong to any cluster, so that they don't repeat the search.
+     *
+     * @param circuits circuits visited during the search
+     */
+    private static void markUnclustered(Collection<SimulatedCircuit> circuits) {
+        circuits.forEach(c -> c.setCluster(null));
+    }
+
+    /**
+     * Evaluate a single member.
+     *
+     * @param i             index of the member
+     * @param memberOutputs function returning the current output side mask of a member with a given index
+     * @param hasSignal     predicate returning whether a member at a given position is powered from a given (absolute) direction,
+     *                      only called for inputs coming from outside the cluster
+     * @return output side mask of the member
+     */
+    public int evaluateMember(int i, IntUnaryOperator memberOutputs, BiPredicate<BlockPos, Direction> hasSignal) {
+        int inputMask = 0;
+
+        for (RelDir input : tables[i].getInputs()) {
+            int side = input.ordinal();
+            int source = sources[i][side];
+
+            boolean powered = source == BOUNDARY
+                    ? hasSignal.test(members.get(i), input.offsetFrom(facings[i]))
+                    : (memberOutputs.applyAsInt(source) & (1 << sourceSides[i][side])) != 0;
+
+            if (powered) {
+                inputMask |= 1 << side;
+            }
+        }
+
+        return tables[i].getOutputMask(inputMask);
+    }
+
+    public ImmutableList<BlockPos> getMembers() {
+        return members;
+    }
+
+    public BlockPos getMember(int index) {
+        return members.get(index);
+    }
+
+    /**
+     * @param pos position to check
+     * @return index of the member at {@code pos} or -1 if it isn't a member
+     */
+    public int indexOf(BlockPos pos) {
+        return indices.getOrDefault(pos, -1);
+    }
+
+    public boolean isMember(BlockPos pos) {
+        return indices.containsKey(pos);
+    }
+
+    /**
+     * @param index index of the member
+     * @return whether any of member's outputs leads outside the cluster
+     */
+    public boolean hasBoundaryOutput(int index) {
+        return boundaryOutputs[index] != 0;
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    /**
+     * Mark the cluster as outdated, for instance after one of its members got removed.
+     * All of the members will search for their cluster again on next evaluation.
+     *
+     * @see SimulatedCircuit#isClusterResolved()
+     */
+    public void invalidate() {
+        valid = false;
+    }
+}
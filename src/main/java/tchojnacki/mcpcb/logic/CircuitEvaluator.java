@@ -0,0 +1,128 @@
+package tchojnacki.mcpcb.logic;
+
+import net.minecraft.MethodsReturnNonnullByDefault;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.function.IntPredicate;
+
+/**
+ * Evaluator specialized for the structure of a truth table, used by circuit blocks to calculate their outputs.
+ * Most of the circuits are simple (constants, buffers, inverters or blank circuits), so reading all four sides
+ * and going through the generic lookup is unnecessary for them.
+ * <p>
+ * Side masks use the same encoding as {@link TruthTable#getOutputMask(int)}.
+ *
+ * @see tchojnacki.mcpcb.common.block.entities.CircuitBlockEntity#getEvaluator()
+ */
+@MethodsReturnNonnullByDefault
+@ParametersAreNonnullByDefault
+public sealed interface CircuitEvaluator permits CircuitEvaluator.Blank, CircuitEvaluator.Constant, CircuitEvaluator.SingleInput, CircuitEvaluator.Generic {
+    /**
+     * Choose the evaluator for a truth table.
+     *
+     * @param table truth table of the circuit
+     * @return the most specific evaluator for {@code table}
+     */
+    static CircuitEvaluator forTable(TruthTable table) {
+        if (table.getOutputs().isEmpty()) {
+            return new Blank();
+        }
+
+        if (table.getInputs().isEmpty()) {
+            return new Constant(table.getOutputMask(0));
+        }
+
+        if (table.getInputs().size() == 1) {
+            RelDir input = table.getInputs().get(0);
+            return new SingleInput(input, table.getOutputMask(0), table.getOutputMask(1 << input.ordinal()));
+        }
+
+        return new Generic(table, table.getInputMask());
+    }
+
+    /**
+     * Calculate the output side mask.
+     *
+     * @param hasSignal predicate returning whether the circuit is powered from a side (given by {@link RelDir#ordinal()}),
+     *                  it only gets called for input sides
+     * @return output side mask
+     */
+    int evaluate(IntPredicate hasSignal);
+
+    /**
+     * Whether the output depends on the inputs, if it doesn't the circuit can ignore neighbour updates
+     * once its output is set.
+     *
+     * @return if the circuit has any inputs and outputs
+     */
+    default boolean dependsOnInputs() {
+        return true;
+    }
+
+    /**
+     * Circuit without any outputs, it never changes its state.
+     */
+    record Blank() implements CircuitEvaluator {
+        @Override
+        public int evaluate(IntPredicate _hasSignal) {
+            return 0;
+        }
+
+        @Override
+        public boolean dependsOnInputs() {
+            return false;
+        }
+    }
+
+    /**
+     * Circuit without any inputs, its outputs are constant.
+     *
+     * @param outputMask constant output side mask
+     */
+    record Constant(int outputMask) implements CircuitEvaluator {
+        @Override
+        public int evaluate(IntPredicate _hasSignal) {
+            return outputMask;
+        }
+
+        @Override
+        public boolean dependsOnInputs() {
+            return false;
+        }
+    }
+
+    /**
+     * Circuit with a single input (for instance a buffer or an inverter), only one side has to be read.
+     *
+     * @param input    the input side
+     * @param lowMask  output side mask when the input is unpowered
+     * @param highMask output side mask when the input is powered
+     */
+    record SingleInput(RelDir input, int lowMask, int highMask) implements CircuitEvaluator {
+        @Override
+        public int evaluate(IntPredicate hasSignal) {
+            return hasSignal.test(input.ordinal()) ? highMask : lowMask;
+        }
+    }
+
+    /**
+     * Any other circuit, reads only its input sides and uses the truth table's lookup.
+     *
+     * @param table     truth table of the circuit
+     * @param inputMask side mask of the input sides
+     */
+    record Generic(TruthTable table, int inputMask) implements CircuitEvaluator {
+        @Override
+        public int evaluate(IntPredicate hasSignal) {
+            int mask = 0;
+
+            for (int side = 0; side < 4; side++) {
+                if ((inputMask & (1 << side)) != 0 && hasSignal.test(side)) {
+                    mask |= 1 << side;
+                }
+            }
+
+            return table.getOutputMask(mask);
+        }
+    }
+}
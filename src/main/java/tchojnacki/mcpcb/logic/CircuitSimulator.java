@@ -0,0 +1,455 @@
+package tchojnacki.mcpcb.logic;
+
+import net.minecraft.MethodsReturnNonnullByDefault;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.List;
+
+/**
+ * Redstone behaviour of circuit blocks: reading their inputs, queueing their outputs and updating their neighbours.
+ * <p>
+ * Each circuit changes its output {@link #DELAY} ticks after its inputs change, like a repeater. Circuits fused into
+ * a {@link CircuitCluster} keep exactly the same timing, every member still queues its own output and gets its own
+ * tick. The cluster only saves the work in between: members read inputs driven by other members directly from them,
+ * and when a member's output changes, the members next to it are evaluated right away instead of going through
+ * neighbour updates of all of the surrounding blocks. Members whose outputs only lead to other members don't update
+ * any other block.
+ *
+ * @see CircuitWorld
+ * @see tchojnacki.mcpcb.common.block.CircuitBlock
+ */
+@MethodsReturnNonnullByDefault
+@ParametersAreNonnullByDefault
+public final class CircuitSimulator {
+    /**
+     * Delay between an input change and the output change, in game ticks.
+     */
+    public final static int DELAY = 1;
+
+    /**
+     * Same order as in Level#updateNeighborsAt.
+     */
+    public final static Direction[] UPDATE_ORDER = {Direction.WEST, Direction.EAST, Direction.DOWN, Direction.UP, Direction.NORTH, Direction.SOUTH};
+
+    private final static RelDir[] SIDES = RelDir.values();
+    private final static TruthTable EMPTY_TABLE = TruthTable.empty();
+
+    /**
+     * Config values used by the simulation.
+     *
+     * @param fuseClusters         whether circuits wired into each other are fused into clusters
+     * @param maxClusterSize       maximum number of members of a cluster
+     * @param batchEvaluation      whether circuits are evaluated in batches
+     * @param parallelThreshold    minimum batch size evaluated in parallel
+     * @param coalescePulses       whether ticks which wouldn't change the output get cancelled
+     * @param dampOscillations     whether oscillating circuits get frozen
+     * @param oscillationThreshold number of output changes within the window considered an oscillation
+     * @param oscillationWindow    length of the window in which output changes are counted, in ticks
+     * @param freezeDuration       for how many ticks an oscillating circuit gets frozen
+     * @see tchojnacki.mcpcb.util.Config
+     */
+    public record Settings(
+            boolean fuseClusters,
+            int maxClusterSize,
+            boolean batchEvaluation,
+            int parallelThreshold,
+            boolean coalescePulses,
+            boolean dampOscillations,
+            int oscillationThreshold,
+            int oscillationWindow,
+            int freezeDuration
+    ) {}
+
+    private final CircuitWorld world;
+    private final Settings settings;
+
+    public CircuitSimulator(CircuitWorld world, Settings settings) {
+        this.world = world;
+        this.settings = settings;
+    }
+
+    /**
+     * Checks if the circuit is being powered from a given side.
+     *
+     * @param pos    circuit's position
+     * @param facing circuit's facing direction
+     * @param side   the side
+     * @return whether the circuit has power from the side
+     */
+    private boolean hasSignalFrom(BlockPos pos, Direction facing, RelDir side) {
+        return world.hasSignal(pos, side.offsetFrom(facing));
+    }
+
+    /**
+     * Checks if blocks next to all of the circuit's inputs are loaded.
+     *
+     * @param pos     circuit's position
+     * @param circuit the circuit
+     * @return whether the inputs can be read without loading chunks
+     */
+    private boolean areInputsLoaded(BlockPos pos, SimulatedCircuit circuit) {
+        for (RelDir input : circuit.getTruthTable().getInputs()) {
+            if (!world.isLoaded(pos.relative(input.offsetFrom(circuit.getFacing())))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks if evaluating the circuit can't change anything: it is either frozen, or it is a blank or a constant
+     * circuit whose output is already set.
+     *
+     * @param pos     circuit's position
+     * @param circuit the circuit
+     * @return whether the evaluation can be skipped
+     */
+    private boolean isSettled(BlockPos pos, SimulatedCircuit circuit) {
+        // Frozen circuits ignore their inputs, they get read again once the freeze ends
+        if (world.getOscillationTracker().isFrozen(pos, world.getGameTime())) {
+            return true;
+        }
+
+        CircuitEvaluator evaluator = circuit.getEvaluator();
+        return !evaluator.dependsOnInputs() && !circuit.isOutputOutdated() && circuit.getActualOutputMask() == evaluator.evaluate(_side -> false);
+    }
+
+    /**
+     * Get the cluster of directly connected circuits a circuit belongs to.
+     * The cluster is searched for lazily and shared between all of its members.
+     *
+     * @param pos     circuit's position
+     * @param circuit the circuit
+     * @return the cluster or null if the circuit should be evaluated on its own
+     * @see CircuitCluster#find(CircuitWorld, BlockPos, int)
+     */
+    @Nullable
+    private CircuitCluster getCluster(BlockPos pos, SimulatedCircuit circuit) {
+        if (!settings.fuseClusters()) {
+            return null;
+        }
+
+        if (!circuit.isClusterResolved()) {
+            CircuitCluster found = CircuitCluster.find(world, pos, settings.maxClusterSize());
+
+            if (found != null) {
+                // Share the cluster, so that other members don't repeat the search
+                for (BlockPos member : found.getMembers()) {
+                    SimulatedCircuit memberCircuit = world.getCircuit(member);
+                    if (memberCircuit != null) {
+                        memberCircuit.setCluster(found);
+                    }
+                }
+            }
+
+            circuit.setCluster(found);
+        }
+
+        CircuitCluster cluster = circuit.getCluster();
+        if (cluster != null && !cluster.isMember(pos)) {
+            cluster.invalidate();
+            return null;
+        }
+
+        return cluster;
+    }
+
+    /**
+     * Calculate circuit's outputs based on its input signals, then schedule a tick to update its neighbours
+     * after a delay. Called whenever one of the circuit's neighbours changes.
+     *
+     * @param pos circuit's position
+     */
+    public void calculatePower(BlockPos pos) {
+        SimulatedCircuit circuit = world.getCircuit(pos);
+        if (circuit == null || isSettled(pos, circuit)) {
+            return;
+        }
+
+        CircuitCluster cluster = getCluster(pos, circuit);
+        if (cluster != null) {
+            queueOutput(pos, circuit, evaluateMember(cluster, pos));
+            return;
+        }
+
+        if (settings.batchEvaluation()) {
+            world.enqueueBatch(pos);
+            return;
+        }
+
+        // Get power after update, only input sides are read
+        Direction facing = circuit.getFacing();
+        int newPower = circuit.getEvaluator().evaluate(side -> hasSignalFrom(pos, facing, SIDES[side]));
+        queueOutput(pos, circuit, newPower);
+    }
+
+    /**
+     * Evaluate a cluster member, inputs driven by other members are read from them directly.
+     *
+     * @param cluster cluster of the circuit
+     * @param pos     circuit's position
+     * @return output side mask of the circuit
+     */
+    private int evaluateMember(CircuitCluster cluster, BlockPos pos) {
+        return cluster.evaluateMember(
+                cluster.indexOf(pos),
+                member -> {
+                    SimulatedCircuit memberCircuit = world.getCircuit(cluster.getMember(member));
+                    return memberCircuit != null ? memberCircuit.getActualOutputMask() : 0;
+                },
+                world::hasSignal
+        );
+    }
+
+    /**
+     * Set the queued output of a circuit and schedule a tick if it differs from the actual output.
+     *
+     * @param pos      circuit's position
+     * @param circuit  the circuit
+     * @param newPower output side mask calculated for current inputs
+     */
+    private void queueOutput(BlockPos pos, SimulatedCircuit circuit, int newPower) {
+        int currentPower = circuit.getActualOutputMask();
+        circuit.setQueuedOutputMask(newPower);
+
+        // Schedule tick if new power is different
+        if (currentPower != newPower) {
+            world.scheduleTick(pos, DELAY);
+        } else if (settings.coalescePulses() && world.hasScheduledTick(pos)) {
+            /*
+            The input change was shorter than the delay, the pending tick wouldn't change anything.
+            If the output changes again later, a new tick gets scheduled, counting the delay from that change.
+             */
+            world.cancelTick(pos);
+        }
+    }
+
+    /**
+     * Evaluate a batch of circuits collected during a tick.
+     * First inputs of all of the circuits are read, then their truth tables get evaluated (possibly in parallel)
+     * and finally their outputs are queued in the order of {@code positions}.
+     * Circuits are handled the same way as in {@link #calculatePower(BlockPos)}: settled circuits are skipped and
+     * cluster members are evaluated through their cluster, already in the read phase.
+     *
+     * @param positions positions of the circuits, in a deterministic order
+     * @see CircuitBatch
+     */
+    public void evaluateBatch(List<BlockPos> positions) {
+        final int n = positions.size();
+        final var circuits = new SimulatedCircuit[n];
+        final var tables = new TruthTable[n];
+        final int[] inputMasks = new int[n];
+        final boolean[] clustered = new boolean[n];
+        final int[] memberOutputs = new int[n];
+
+        // Read phase
+        for (int i = 0; i < n; i++) {
+            BlockPos pos = positions.get(i);
+            tables[i] = EMPTY_TABLE;
+
+            SimulatedCircuit circuit = world.isLoaded(pos) ? world.getCircuit(pos) : null;
+            if (circuit != null && !isSettled(pos, circuit)) {
+                // Reading an input from an unloaded chunk would load it, such circuits keep their state
+                if (!areInputsLoaded(pos, circuit)) {
+                    continue;
+                }
+
+                circuits[i] = circuit;
+
+                CircuitCluster cluster = getCluster(pos, circuit);
+                if (cluster != null) {
+                    clustered[i] = true;
+                    memberOutputs[i] = evaluateMember(cluster, pos);
+                    continue;
+                }
+
+                tables[i] = circuit.getTruthTable();
+                for (RelDir input : tables[i].getInputs()) {
+                    if (hasSignalFrom(pos, circuit.getFacing(), input)) {
+                        inputMasks[i] |= 1 << input.ordinal();
+                    }
+                }
+            }
+        }
+
+        // Compute phase
+        int[] outputs = CircuitBatch.evaluate(tables, inputMasks, settings.parallelThreshold());
+
+        // Write phase
+        for (int i = 0; i < n; i++) {
+            if (circuits[i] != null) {
+                queueOutput(positions.get(i), circuits[i], clustered[i] ? memberOutputs[i] : outputs[i]);
+            }
+        }
+    }
+
+    /**
+     * Called on the tick scheduled in {@link #calculatePower(BlockPos)}, applies the queued output.
+     *
+     * @param pos circuit's position
+     */
+    public void tick(BlockPos pos) {
+        SimulatedCircuit circuit = world.getCircuit(pos);
+        if (circuit == null) {
+            return;
+        }
+
+        long gameTime = world.getGameTime();
+        OscillationTracker tracker = world.getOscillationTracker();
+
+        if (tracker.isFrozen(pos, gameTime)) {
+            // Make sure the circuit gets ticked once the freeze ends
+            world.scheduleTick(pos, (int) (tracker.getFrozenUntil(pos) - gameTime));
+            return;
+        }
+
+        if (tracker.thaw(pos, gameTime)) {
+            // Inputs were ignored during the freeze, read them again
+            calculatePower(pos);
+            return;
+        }
+
+        // Update only if the output will change
+        if (circuit.isOutputOutdated()) {
+            circuit.updateOutput();
+
+            CircuitCluster cluster = getCluster(pos, circuit);
+            if (cluster != null) {
+                updateClusterNeighbours(pos, circuit, cluster);
+            } else {
+                updateNeighbours(pos, circuit);
+            }
+
+            if (settings.dampOscillations() && tracker.recordToggle(pos, gameTime, settings.oscillationWindow(), settings.oscillationThreshold())) {
+                freeze(pos, cluster);
+            }
+        }
+    }
+
+    /**
+     * Update neighbours after the output of the circuit changed.
+     *
+     * @param pos     circuit's position
+     * @param circuit the circuit
+     * @see #tick(BlockPos)
+     */
+    private void updateNeighbours(BlockPos pos, SimulatedCircuit circuit) {
+        // Update immediate neighbouring blocks
+        world.updateNeighborsAt(pos);
+
+        /*
+        If there is an output on given side update neighbours of neighbouring block too.
+        In case there is a solid block at the output, the signal should propagate further
+        (because circuit block provides strong signal), hence another set of blocks needs updating.
+
+        For instance, consider a horizontal plane with a circuit with an output at each side, marked as '*' below:
+          2
+         212
+        21*12
+         212
+          2
+        The blocks marked as '1' would get updated by the command above, while blocks marked as '2' would
+        get updated by the loop below.
+
+        TODO: As a possible performance increase we might request block updates only if the direct neighbour
+            can conduct redstone power (it is solid). Meaning we only update blocks marked '2' from the example
+            above only if their according '1' blocks conduct power
+         */
+        for (Direction direction : Direction.Plane.HORIZONTAL) {
+            if (circuit.getTruthTable().hasOutput(RelDir.getOffset(circuit.getFacing(), direction))) {
+                world.updateNeighborsAtExceptFromFacing(pos.relative(direction), direction.getOpposite());
+            }
+        }
+    }
+
+    /**
+     * Update neighbours of a cluster member after its output changed.
+     * Neighbouring members are evaluated directly, in the same order in which they would receive neighbour updates.
+     * Other neighbours are only updated if the member has an output leading outside the cluster,
+     * otherwise none of the signals they can read changed.
+     *
+     * @param pos     circuit's position
+     * @param circuit the circuit
+     * @param cluster cluster the circuit belongs to
+     * @see #tick(BlockPos)
+     */
+    private void updateClusterNeighbours(BlockPos pos, SimulatedCircuit circuit, CircuitCluster cluster) {
+        boolean boundary = cluster.hasBoundaryOutput(cluster.indexOf(pos));
+
+        for (Direction direction : UPDATE_ORDER) {
+            BlockPos neighbourPos = pos.relative(direction);
+            if (cluster.isMember(neighbourPos)) {
+                calculatePower(neighbourPos);
+            } else if (boundary) {
+                world.neighborChanged(neighbourPos, pos);
+            }
+        }
+
+        if (!boundary) {
+            return;
+        }
+
+        // Second ring of updates for outputs leading outside the cluster, see updateNeighbours()
+        for (Direction direction : Direction.Plane.HORIZONTAL) {
+            BlockPos neighbourPos = pos.relative(direction);
+            if (!cluster.isMember(neighbourPos) && circuit.getTruthTable().hasOutput(RelDir.getOffset(circuit.getFacing(), direction))) {
+                world.updateNeighborsAtExceptFromFacing(neighbourPos, direction.getOpposite());
+            }
+        }
+    }
+
+    /**
+     * Freeze an oscillating circuit (together with its cluster) and report it to the operators.
+     * Frozen circuits keep their outputs, so they stop updating their neighbours.
+     *
+     * @param pos     circuit's position
+     * @param cluster circuit's cluster or null
+     * @see OscillationTracker#freeze(BlockPos, long, int, int)
+     */
+    private void freeze(BlockPos pos, @Nullable CircuitCluster cluster) {
+        long gameTime = world.getGameTime();
+        int duration = settings.freezeDuration();
+        int window = settings.oscillationWindow();
+        OscillationTracker tracker = world.getOscillationTracker();
+
+        boolean newEpisode = tracker.freeze(pos, gameTime, duration, window);
+        world.scheduleTick(pos, duration);
+
+        if (cluster != null) {
+            for (BlockPos memberPos : cluster.getMembers()) {
+                if (!memberPos.equals(pos) && world.getCircuit(memberPos) != null) {
+                    tracker.freeze(memberPos, gameTime, duration, window);
+                    world.scheduleTick(memberPos, duration);
+                }
+            }
+        }
+
+        if (newEpisode) {
+            world.reportOscillation(pos, duration);
+        }
+    }
+
+    /**
+     * Invalidate clusters of the circuit at a given position and its neighbours, after the connections between them changed.
+     *
+     * @param pos position of the circuit
+     */
+    public void invalidateClustersAround(BlockPos pos) {
+        SimulatedCircuit circuit = world.getCircuit(pos);
+        if (circuit != null) {
+            circuit.invalidateCluster();
+        }
+
+        for (Direction direction : Direction.Plane.HORIZONTAL) {
+            BlockPos neighbourPos = pos.relative(direction);
+            SimulatedCircuit neighbour = world.isLoaded(neighbourPos) ? world.getCircuit(neighbourPos) : null;
+            if (neighbour != null) {
+                neighbour.invalidateCluster();
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package tchojnacki.mcpcb.logic;
+
+import net.minecraft.MethodsReturnNonnullByDefault;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+
+/**
+ * The part of a level the {@link CircuitSimulator} reads and changes.
+ * Implemented over a server level by the circuit block, tests implement it over a plain map of circuits.
+ *
+ * @see tchojnacki.mcpcb.common.block.CircuitBlock
+ */
+@MethodsReturnNonnullByDefault
+@ParametersAreNonnullByDefault
+public interface CircuitWorld {
+    long getGameTime();
+
+    /**
+     * @param pos position to check
+     * @return whether the block at {@code pos} can be read without loading its chunk
+     */
+    boolean isLoaded(BlockPos pos);
+
+    /**
+     * @param pos position of the circuit
+     * @return the circuit or null if there is no circuit at {@code pos}
+     */
+    @Nullable
+    SimulatedCircuit getCircuit(BlockPos pos);
+
+    /**
+     * Checks if a circuit is powered by its neighbour.
+     *
+     * @param pos       position of the circuit
+     * @param direction (absolute) direction from the circuit to the neighbour
+     * @return whether the neighbour powers the circuit
+     */
+    boolean hasSignal(BlockPos pos, Direction direction);
+
+    /**
+     * Schedule a tick of the circuit, ignored if the circuit already has a scheduled tick.
+     *
+     * @param pos   position of the circuit
+     * @param delay delay in ticks
+     */
+    void scheduleTick(BlockPos pos, int delay);
+
+    boolean hasScheduledTick(BlockPos pos);
+
+    void cancelTick(BlockPos pos);
+
+    /**
+     * Update all of the neighbours of a block.
+     *
+     * @param pos position of the block
+     */
+    void updateNeighborsAt(BlockPos pos);
+
+    /**
+     * Update all of the neighbours of a block except for one.
+     *
+     * @param pos    position of the block
+     * @param except direction of the neighbour which doesn't get updated
+     */
+    void updateNeighborsAtExceptFromFacing(BlockPos pos, Direction except);
+
+    /**
+     * Update a single block after its neighbour changed.
+     *
+     * @param pos    position of the updated block
+     * @param source position of the changed neighbour
+     */
+    void neighborChanged(BlockPos pos, BlockPos source);
+
+    /**
+     * Add a circuit to the batch evaluated after the current phase of the tick.
+     *
+     * @param pos position of the circuit
+     * @see CircuitSimulator#evaluateBatch(java.util.List)
+     */
+    void enqueueBatch(BlockPos pos);
+
+    OscillationTracker getOscillationTracker();
+
+    /**
+     * Report a circuit which started oscillating to the operators.
+     *
+     * @param pos      position of the circuit
+     * @param duration duration of the freeze, in ticks
+     */
+    void reportOscillation(BlockPos pos, int duration);
+}
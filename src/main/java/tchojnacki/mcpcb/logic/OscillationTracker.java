@@ -0,0 +1,157 @@
+package tchojnacki.mcpcb.logic;
+
+import net.minecraft.MethodsReturnNonnullByDefault;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.Level;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.HashMap;
+import java.util.WeakHashMap;
+
+/**
+ * Oscillation tracking of the circuits in a single level, kept next to the circuits instead of in their block entities.
+ * <p>
+ * Output changes are counted in fixed windows of game time, if there are too many of them the circuit gets frozen.
+ * Only circuits which changed their output recently have an entry. Entries get dropped once they can't affect anything
+ * anymore: their counting window is over and they either weren't frozen or their freeze ended more than a window ago
+ * (until then the freeze is remembered, so that a circuit frozen again right after its freeze isn't reported twice).
+ *
+ * @see tchojnacki.mcpcb.common.block.CircuitBlock
+ */
+@MethodsReturnNonnullByDefault
+@ParametersAreNonnullByDefault
+public final class OscillationTracker {
+    /**
+     * Trackers of the levels, only accessed from the server thread.
+     */
+    private final static WeakHashMap<Level, OscillationTracker> TRACKERS = new WeakHashMap<>();
+
+    private final static class Entry {
+        private long windowStart;
+        private int count = 0;
+        private boolean frozen = false;
+        private long frozenUntil = -1;
+
+        private Entry(long windowStart) {
+            this.windowStart = windowStart;
+        }
+
+        private boolean isStale(long gameTime, int window) {
+            return !frozen && gameTime - windowStart >= window && (frozenUntil < 0 || gameTime - frozenUntil > window);
+        }
+    }
+
+    private final HashMap<BlockPos, Entry> entries = new HashMap<>();
+
+    /**
+     * Game time of the next removal of stale entries.
+     */
+    private long nextPurge = 0;
+
+    /**
+     * Get the tracker of a level, creating it if needed.
+     *
+     * @param level the level
+     * @return tracker of the level
+     */
+    public static OscillationTracker get(Level level) {
+        return TRACKERS.computeIfAbsent(level, _level -> new OscillationTracker());
+    }
+
+    /**
+     * Count an output change.
+     *
+     * @param blockPos  circuit's position
+     * @param gameTime  current game time
+     * @param window    length of the counting window, in ticks
+     * @param threshold number of changes within the window considered an oscillation
+     * @return whether the circuit is oscillating
+     */
+    public boolean recordToggle(BlockPos blockPos, long gameTime, int window, int threshold) {
+        if (gameTime >= nextPurge) {
+            entries.values().removeIf(entry -> entry.isStale(gameTime, window));
+            nextPurge = gameTime + window;
+        }
+
+        Entry entry = entries.computeIfAbsent(blockPos.immutable(), _pos -> new Entry(gameTime));
+        if (gameTime - entry.windowStart >= window) {
+            entry.windowStart = gameTime;
+            entry.count = 0;
+        }
+
+        return ++entry.count >= threshold;
+    }
+
+    /**
+     * Freeze a circuit, it will keep its output until {@code gameTime + duration}.
+     *
+     * @param blockPos circuit's position
+     * @param gameTime current game time
+     * @param duration freeze duration, in ticks
+     * @param window   length of the counting window, freezes closer to each other than that are a single episode
+     * @return whether this is a new oscillation episode (worth reporting)
+     */
+    public boolean freeze(BlockPos blockPos, long gameTime, int duration, int window) {
+        Entry entry = entries.computeIfAbsent(blockPos.immutable(), _pos -> new Entry(gameTime));
+        boolean newEpisode = entry.frozenUntil < 0 || gameTime - entry.frozenUntil > window;
+
+        entry.frozen = true;
+        entry.frozenUntil = gameTime + duration;
+        entry.count = 0;
+        entry.windowStart = entry.frozenUntil;
+
+        return newEpisode;
+    }
+
+    /**
+     * @param blockPos circuit's position
+     * @param gameTime current game time
+     * @return whether the circuit is frozen
+     */
+    public boolean isFrozen(BlockPos blockPos, long gameTime) {
+        Entry entry = entries.get(blockPos);
+        return entry != null && entry.frozen && gameTime < entry.frozenUntil;
+    }
+
+    /**
+     * @param blockPos circuit's position
+     * @return game time at which the freeze of the circuit ends, -1 if it was never frozen
+     */
+    public long getFrozenUntil(BlockPos blockPos) {
+        Entry entry = entries.get(blockPos);
+        return entry != null ? entry.frozenUntil : -1;
+    }
+
+    /**
+     * Unfreeze a circuit if its freeze has ended.
+     *
+     * @param blockPos circuit's position
+     * @param gameTime current game time
+     * @return whether the circuit was frozen before the call
+     */
+    public boolean thaw(BlockPos blockPos, long gameTime) {
+        Entry entry = entries.get(blockPos);
+        if (entry != null && entry.frozen && gameTime >= entry.frozenUntil) {
+            entry.frozen = false;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Forget a circuit, called when it gets removed, so that a circuit placed at its position starts over.
+     *
+     * @param blockPos circuit's position
+     */
+    public void remove(BlockPos blockPos) {
+        entries.remove(blockPos);
+    }
+
+    /**
+     * @return number of tracked circuits
+     */
+    public int size() {
+        return entries.size();
+    }
+}
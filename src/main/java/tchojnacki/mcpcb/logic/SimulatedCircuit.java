@@ -0,0 +1,74 @@
+package tchojnacki.mcpcb.logic;
+
+import net.minecraft.MethodsReturnNonnullByDefault;
+import net.minecraft.core.Direction;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+
+/**
+ * State of a single circuit, as used by the {@link CircuitSimulator}.
+ *
+ * @see tchojnacki.mcpcb.common.block.entities.CircuitBlockEntity
+ */
+@MethodsReturnNonnullByDefault
+@ParametersAreNonnullByDefault
+public interface SimulatedCircuit {
+    TruthTable getTruthTable();
+
+    /**
+     * @return direction the circuit is facing
+     */
+    Direction getFacing();
+
+    /**
+     * @return side mask of the output the circuit currently gives
+     */
+    int getActualOutputMask();
+
+    /**
+     * @return side mask of the output which will become the actual output on circuit's next tick
+     */
+    int getQueuedOutputMask();
+
+    /**
+     * @param outputMask side mask of the new queued output
+     */
+    void setQueuedOutputMask(int outputMask);
+
+    /**
+     * Set the actual output to the queued output.
+     */
+    void updateOutput();
+
+    /**
+     * @return whether the cluster of the circuit was already searched for and is still valid
+     */
+    boolean isClusterResolved();
+
+    /**
+     * @return cluster of the circuit, null if it doesn't belong to any or it wasn't resolved yet
+     */
+    @Nullable
+    CircuitCluster getCluster();
+
+    /**
+     * Remember the cluster of the circuit, after it was searched for.
+     *
+     * @param cluster the cluster or null if the circuit doesn't belong to any
+     */
+    void setCluster(@Nullable CircuitCluster cluster);
+
+    /**
+     * Invalidate the cluster of the circuit (for all of its members), it gets searched for again on next use.
+     */
+    void invalidateCluster();
+
+    default CircuitEvaluator getEvaluator() {
+        return getTruthTable().getEvaluator();
+    }
+
+    default boolean isOutputOutdated() {
+        return getActualOutputMask() != getQueuedOutputMask();
+    }
+}
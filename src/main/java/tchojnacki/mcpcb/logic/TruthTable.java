@@ -4,16 +4,21 @@ import com.google.common.collect.ImmutableList;
 import net.minecraft.MethodsReturnNonnullByDefault;
 import net.minecraft.nbt.ByteArrayTag;
 import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.IntTag;
 import net.minecraft.nbt.ListTag;
 import net.minecraft.nbt.Tag;
+import net.minecraft.network.FriendlyByteBuf;
 
 import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
+import java.util.function.IntPredicate;
 import java.util.stream.Collectors;
 
 /**
@@ -52,10 +57,111 @@ public class TruthTable {
      */
     private final ImmutableList<BitSet> mappings; // TODO: For our purposes the bitset would fit into a primitive type, it might be faster
 
+    /**
+     * Lookup table used for evaluating the truth table using primitive side masks.
+     * A side mask is a 4 bit integer, where i-th bit describes the state of the i-th {@link RelDir} (the same
+     * encoding as in {@link SideBoolMap#toByte()}). There are 16 possible input side masks, each one gets
+     * assigned a 4 bit output side mask, stored at bits from 4 * inputMask to 4 * inputMask + 3.
+     * The table is immutable, so the lookup is calculated once, in the constructor.
+     *
+     * @see #getOutputMask(int)
+     */
+    private final long sideLookup;
+
+    /**
+     * Encoding of the table calculated once in the constructor, {@link #NOT_PACKABLE} for malformed tables.
+     *
+     * @see #pack()
+     */
+    private final int packed;
+
+    private final static int NOT_PACKABLE = -1;
+
+    /**
+     * Serialized table, created lazily. Tables are immutable, so it never changes.
+     *
+     * @see #toNBT()
+     */
+    @Nullable
+    private Tag serialized;
+
+    /**
+     * Shared instances of truth tables, keyed by their packed encoding.
+     * There are less than 2^22 valid encodings and in practice only a handful of them is used, so entries are never removed.
+     *
+     * @see #intern(TruthTable)
+     */
+    private final static ConcurrentHashMap<Integer, TruthTable> INTERNED = new ConcurrentHashMap<>();
+
+    /**
+     * Number of bits used by {@link #pack()}.
+     */
+    private final static int PACKED_BITS = 22;
+
+    /**
+     * Version of the NBT encoding, stored in the bits above the packed table.
+     * Tables saved before the encoding was versioned are compound tags.
+     *
+     * @see #toNBT()
+     */
+    private final static int NBT_VERSION = 1;
+
+    /**
+     * Evaluator specialized for this table, created lazily. Tables are immutable, so it never changes.
+     *
+     * @see #getEvaluator()
+     */
+    @Nullable
+    private CircuitEvaluator evaluator;
+
     public TruthTable(List<RelDir> inputs, List<RelDir> outputs, List<BitSet> mappings) {
         this.inputs = ImmutableList.copyOf(inputs);
         this.outputs = ImmutableList.copyOf(outputs);
         this.mappings = ImmutableList.copyOf(mappings);
+        this.sideLookup = calculateSideLookup();
+        this.packed = calculatePacked();
+    }
+
+    /**
+     * Convert a side mask into a set of sides.
+     *
+     * @param sides list of sides
+     * @return side mask with a bit set for each element of {@code sides}
+     */
+    private static int sidesToMask(List<RelDir> sides) {
+        int mask = 0;
+        for (RelDir side : sides) {
+            mask |= 1 << side.ordinal();
+        }
+        return mask;
+    }
+
+    /**
+     * @see #sideLookup
+     */
+    private long calculateSideLookup() {
+        long lookup = 0;
+
+        for (int inputMask = 0; inputMask < 16; inputMask++) {
+            // Translate the side mask into the input set (i-th bit corresponds to the i-th input)
+            int inputSet = 0;
+            for (int i = 0; i < inputs.size(); i++) {
+                if ((inputMask & (1 << inputs.get(i).ordinal())) != 0) {
+                    inputSet |= 1 << i;
+                }
+            }
+
+            int outputMask = 0;
+            for (int o = 0; o < outputs.size() && o < mappings.size(); o++) {
+                if (mappings.get(o).get(inputSet)) {
+                    outputMask |= 1 << outputs.get(o).ordinal();
+                }
+            }
+
+            lookup |= (long) outputMask << (4 * inputMask);
+        }
+
+        return lookup;
     }
 
     /**
@@ -68,30 +174,24 @@ public class TruthTable {
     }
 
     /**
-     * Construct a truth table using a boolean function.
+     * Construct a truth table using a function of input masks.
      * Length of {@code outputs} must be the same as {@code funcs}, and their indexes correspond.
      *
      * @param inputs  list of table inputs
      * @param outputs list of table outputs
-     * @param funcs   list of functions from list of booleans to a single output boolean used to generate mappings
+     * @param funcs   list of predicates on input sets (bit i holds the state of {@code inputs.get(i)}) used to generate mappings
      * @return truth table fulfilling the function set
      */
-    public static TruthTable fromBoolFunc(List<RelDir> inputs, List<RelDir> outputs, List<Function<List<Boolean>, Boolean>> funcs) {
+    public static TruthTable fromMaskFunc(List<RelDir> inputs, List<RelDir> outputs, List<IntPredicate> funcs) {
         int inputSetCount = 1 << inputs.size();
 
         ArrayList<BitSet> mappings = new ArrayList<>();
 
-        for (Function<List<Boolean>, Boolean> func : funcs) {
+        for (IntPredicate func : funcs) {
             BitSet bitSet = new BitSet(inputSetCount);
 
             for (int inputSet = 0; inputSet < inputSetCount; inputSet++) {
-                ArrayList<Boolean> arguments = new ArrayList<>();
-
-                for (int bit = 0; bit < inputs.size(); bit++) {
-                    arguments.add((inputSet & (1 << bit)) > 0);
-                }
-
-                bitSet.set(inputSet, func.apply(arguments));
+                bitSet.set(inputSet, func.test(inputSet));
             }
 
             mappings.add(bitSet);
@@ -100,6 +200,40 @@ public class TruthTable {
         return new TruthTable(new ArrayList<>(inputs), new ArrayList<>(outputs), mappings);
     }
 
+    /**
+     * @see #fromMaskFunc(List, List, List)
+     */
+    public static TruthTable fromMaskFunc(List<RelDir> inputs, RelDir output, IntPredicate func) {
+        return fromMaskFunc(inputs, Collections.singletonList(output), Collections.singletonList(func));
+    }
+
+    /**
+     * @see #fromMaskFunc(List, List, List)
+     */
+    public static TruthTable fromMaskFunc(RelDir input, RelDir output, IntPredicate func) {
+        return fromMaskFunc(Collections.singletonList(input), Collections.singletonList(output), Collections.singletonList(func));
+    }
+
+    /**
+     * Construct a truth table using a boolean function.
+     * Length of {@code outputs} must be the same as {@code funcs}, and their indexes correspond.
+     *
+     * @param inputs  list of table inputs
+     * @param outputs list of table outputs
+     * @param funcs   list of functions from list of booleans to a single output boolean used to generate mappings
+     * @return truth table fulfilling the function set
+     * @see #fromMaskFunc(List, List, List)
+     */
+    public static TruthTable fromBoolFunc(List<RelDir> inputs, List<RelDir> outputs, List<Function<List<Boolean>, Boolean>> funcs) {
+        int inputCount = inputs.size();
+
+        return fromMaskFunc(
+                inputs,
+                outputs,
+                funcs.stream().<IntPredicate>map(func -> inputSet -> func.apply(new InputSetView(inputSet, inputCount))).toList()
+        );
+    }
+
     /**
      * @see #fromBoolFunc(List, List, List)
      */
@@ -115,15 +249,202 @@ public class TruthTable {
     }
 
     /**
-     * Calculate outputs for a given input set.
+     * Read-only view of an input set as a list of booleans, passed to functions given to {@link #fromBoolFunc(List, List, List)}.
+     */
+    private static class InputSetView extends AbstractList<Boolean> {
+        private final int inputSet;
+        private final int size;
+
+        InputSetView(int inputSet, int size) {
+            this.inputSet = inputSet;
+            this.size = size;
+        }
+
+        @Override
+        public Boolean get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException(index);
+            }
+
+            return (inputSet & (1 << index)) != 0;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Map a side mask of input states to a side mask of output states according to the truth table.
+     * This is a primitive counterpart of {@link #getOutputsForInputs(SideBoolMap)}, which doesn't allocate.
+     * States of sides that aren't inputs are ignored.
+     *
+     * @param inputMask side mask of input states, see {@link #sideLookup}
+     * @return side mask of output states
+     */
+    public int getOutputMask(int inputMask) {
+        return (int) (sideLookup >>> (4 * (inputMask & 0xF))) & 0xF;
+    }
+
+    /**
+     * Get the packed lookup of the truth table.
+     *
+     * @return output side masks for all of the 16 input side masks, four bits each
+     * @see #getOutputMask(int)
+     */
+    public long getSideLookup() {
+        return sideLookup;
+    }
+
+    /**
+     * Get the evaluator specialized for this table. It is shared by all users of the table.
+     *
+     * @return evaluator of the table
+     * @see CircuitEvaluator#forTable(TruthTable)
+     */
+    public CircuitEvaluator getEvaluator() {
+        if (evaluator == null) {
+            evaluator = CircuitEvaluator.forTable(this);
+        }
+
+        return evaluator;
+    }
+
+    /**
+     * Whether the table can be encoded using {@link #pack()}.
+     * Tables created by the mod always can, only malformed tables (with repeated sides, more than four
+     * sides in total or mappings not matching outputs) can't.
+     *
+     * @return if the table is packable
+     */
+    public boolean isPackable() {
+        return packed != NOT_PACKABLE;
+    }
+
+    /**
+     * Encode the table into a single integer.
+     * <p>
+     * Since a table has at most four sides, it holds at most 8 mapping bits (three inputs and one output or
+     * two inputs and two outputs). The encoding uses 22 bits:
+     * - bits 0-2: number of inputs (n)
+     * - bits 3-5: number of outputs (m)
+     * - bits 6-13: ordinals of the inputs followed by ordinals of the outputs, two bits each
+     * - bits 14-21: mappings, 2^n bits for each output
+     *
+     * @return packed encoding of the table
+     * @throws IllegalStateException if the table isn't packable
+     * @see #isPackable()
+     * @see #unpack(int)
+     */
+    public int pack() throws IllegalStateException {
+        if (packed == NOT_PACKABLE) {
+            throw new IllegalStateException("Truth table can't be packed.");
+        }
+
+        return packed;
+    }
+
+    /**
+     * @return packed encoding of the table or {@link #NOT_PACKABLE}
+     * @see #pack()
+     */
+    private int calculatePacked() {
+        final int n = inputs.size();
+        final int m = outputs.size();
+
+        if (n + m > 4 || mappings.size() != m || Integer.bitCount(getInputMask() | getOutputSideMask()) != n + m) {
+            return NOT_PACKABLE;
+        }
+
+        if (mappings.stream().anyMatch(bitSet -> bitSet.length() > 1 << n)) {
+            return NOT_PACKABLE;
+        }
+
+        int encoding = n | (m << 3);
+
+        int sideBit = 6;
+        for (RelDir side : inputs) {
+            encoding |= side.ordinal() << sideBit;
+            sideBit += 2;
+        }
+        for (RelDir side : outputs) {
+            encoding |= side.ordinal() << sideBit;
+            sideBit += 2;
+        }
+
+        for (int o = 0; o < m; o++) {
+            BitSet bitSet = mappings.get(o);
+            for (int row = 0; row < 1 << n; row++) {
+                if (bitSet.get(row)) {
+                    encoding |= 1 << (14 + o * (1 << n) + row);
+                }
+            }
+        }
+
+        return encoding;
+    }
+
+    /**
+     * Decode a table encoded using {@link #pack()}.
+     *
+     * @param packed packed encoding of the table
+     * @return decoded table
+     * @throws IllegalArgumentException if the encoding is invalid
+     */
+    public static TruthTable unpack(int packed) throws IllegalArgumentException {
+        final int n = packed & 0b111;
+        final int m = (packed >>> 3) & 0b111;
+        if (n + m > 4 || (packed >>> (14 + m * (1 << n))) != 0) {
+            throw new IllegalArgumentException("Invalid packed truth table.");
+        }
+
+        final var sides = new ArrayList<RelDir>();
+        for (int i = 0; i < n + m; i++) {
+            RelDir side = RelDir.values()[(packed >>> (6 + 2 * i)) & 0b11];
+            if (sides.contains(side)) {
+                throw new IllegalArgumentException("Invalid packed truth table.");
+            }
+            sides.add(side);
+        }
+
+        final var mappings = new ArrayList<BitSet>();
+        for (int o = 0; o < m; o++) {
+            BitSet bitSet = new BitSet(1 << n);
+            for (int row = 0; row < 1 << n; row++) {
+                bitSet.set(row, (packed & (1 << (14 + o * (1 << n) + row))) != 0);
+            }
+            mappings.add(bitSet);
+        }
+
+        return new TruthTable(sides.subList(0, n), sides.subList(n, n + m), mappings);
+    }
+
+    /**
+     * Get the shared instance of an equivalent table, so that circuits with the same table don't hold copies of it.
+     *
+     * @param table any table
+     * @return shared instance equivalent to {@code table}, or {@code table} itself if it can't be packed
+     */
+    public static TruthTable intern(TruthTable table) {
+        if (!table.isPackable()) {
+            return table;
+        }
+
+        return INTERNED.computeIfAbsent(table.pack(), _packed -> table);
+    }
+
+    /**
+     * Get the shared instance of a table given by its packed encoding.
      *
-     * @param inputSet integer representing the set of inputs, where i-th bit corresponds to i-th input's state
-     * @return list of values of outputs for given inputs
+     * @param packed packed encoding of the table
+     * @return shared instance of the table
+     * @throws IllegalArgumentException if the encoding is invalid
+     * @see #intern(TruthTable)
      */
-    private ImmutableList<Boolean> outputsForInputSet(int inputSet) {
-        final var builder = ImmutableList.<Boolean>builder();
-        mappings.forEach(b -> builder.add(b.get(inputSet)));
-        return builder.build();
+    public static TruthTable fromPacked(int packed) throws IllegalArgumentException {
+        TruthTable interned = INTERNED.get(packed);
+        return interned != null ? interned : intern(unpack(packed));
     }
 
     /**
@@ -133,18 +454,21 @@ public class TruthTable {
      * @return side boolean map of output states
      */
     public SideBoolMap getOutputsForInputs(SideBoolMap inputMap) {
-        int inputSet = 0;
-        for (int i = 0; i < inputs.size(); i++) {
-            inputSet += (1 << i) * (inputMap.get(inputs.get(i)) ? 1 : 0);
-        }
+        return SideBoolMap.fromByte((byte) getOutputMask(inputMap.toByte()));
+    }
 
-        final var outputsForSet = outputsForInputSet(inputSet);
+    /**
+     * @return side mask with bits set for all of the input sides
+     */
+    public int getInputMask() {
+        return sidesToMask(inputs);
+    }
 
-        return SideBoolMap.constructWith(
-                side -> outputs.contains(side)
-                        ? outputsForSet.get(outputs.indexOf(side))
-                        : false
-        );
+    /**
+     * @return side mask with bits set for all of the output sides
+     */
+    public int getOutputSideMask() {
+        return sidesToMask(outputs);
     }
 
     public boolean hasInputOrOutput(RelDir side) {
@@ -183,6 +507,37 @@ public class TruthTable {
     /**
      * Serialize the truth table into an NBT tag.
      * <p>
+     * The table is saved as a single int tag, holding {@link #NBT_VERSION} above the {@link #pack()} encoding.
+     * Tables which can't be packed are saved using the legacy format.
+     * <p>
+     * The tag is created once per table. Int tags are immutable, so the same instance gets returned every time,
+     * while legacy compound tags get copied, since the caller might modify them.
+     *
+     * @return returns an NBT tag containing the truth table
+     * @see #fromNBT(Tag)
+     */
+    public Tag toNBT() {
+        if (serialized == null) {
+            serialized = isPackable() ? IntTag.valueOf(encode()) : toLegacyNBT();
+        }
+
+        return serialized.copy();
+    }
+
+    /**
+     * Serialize the truth table into an NBT tag, in a chosen format. Both formats are accepted by {@link #fromNBT(Tag)}.
+     *
+     * @param legacy whether the legacy format should be written, older versions of the mod can't read the int tag
+     * @return returns an NBT tag containing the truth table
+     * @see tchojnacki.mcpcb.util.Config#legacyTableFormat()
+     */
+    public Tag toNBT(boolean legacy) {
+        return legacy ? toLegacyNBT() : toNBT();
+    }
+
+    /**
+     * Serialize the truth table into an NBT tag, using the legacy format.
+     * <p>
      * It has 3 subtags: "Inputs", "Outputs" and "Mappings".
      * Inputs tag holds a byte array containing serialized {@link #inputs}.
      * Outputs tag holds a byte array containing serialized {@link #outputs}.
@@ -191,7 +546,7 @@ public class TruthTable {
      * @return returns an NBT tag containing the truth table
      * @see RelDir#dirListToBytes(List)
      */
-    public CompoundTag toNBT() {
+    public CompoundTag toLegacyNBT() {
         CompoundTag tag = new CompoundTag();
 
         tag.putByteArray("Inputs", RelDir.dirListToBytes(inputs));
@@ -210,6 +565,29 @@ public class TruthTable {
         return tag;
     }
 
+    /**
+     * Write the truth table into a packet buffer, as a var int holding the versioned encoding.
+     * Tables which can't be packed are written as a zero followed by the legacy NBT.
+     *
+     * @param buffer packet buffer
+     * @see #fromBuffer(FriendlyByteBuf)
+     */
+    public void toBuffer(FriendlyByteBuf buffer) {
+        if (isPackable()) {
+            buffer.writeVarInt(encode());
+        } else {
+            buffer.writeVarInt(0);
+            buffer.writeNbt(toLegacyNBT());
+        }
+    }
+
+    /**
+     * @return packed encoding of the table with the version marker, never zero
+     */
+    private int encode() {
+        return (NBT_VERSION << PACKED_BITS) | pack();
+    }
+
     /**
      * Returns the signature of the truth table.
      * <p>
@@ -292,13 +670,65 @@ public class TruthTable {
     }
 
     /**
-     * Deserialize a truth table from an NBT tag.
+     * Deserialize a truth table from an NBT tag, accepts both the current and the legacy format.
      *
      * @param tag NBT tag containing a serialized truth table
-     * @return the truth table
+     * @return the truth table, an empty one if the tag is missing or invalid
      * @see #toNBT()
      */
-    public static TruthTable fromNBT(CompoundTag tag) {
+    public static TruthTable fromNBT(@Nullable Tag tag) {
+        if (tag instanceof IntTag intTag) {
+            return decode(intTag.getAsInt());
+        }
+
+        if (tag instanceof CompoundTag compoundTag) {
+            return fromLegacyNBT(compoundTag);
+        }
+
+        return TruthTable.empty();
+    }
+
+    /**
+     * Read a truth table written using {@link #toBuffer(FriendlyByteBuf)}.
+     *
+     * @param buffer packet buffer
+     * @return the truth table
+     */
+    public static TruthTable fromBuffer(FriendlyByteBuf buffer) {
+        int encoded = buffer.readVarInt();
+        if (encoded == 0) {
+            CompoundTag tag = buffer.readNbt();
+            return tag != null ? fromLegacyNBT(tag) : TruthTable.empty();
+        }
+
+        return decode(encoded);
+    }
+
+    /**
+     * @param encoded packed encoding of the table with the version marker
+     * @return the truth table, an empty one if the encoding is invalid
+     * @see #encode()
+     */
+    private static TruthTable decode(int encoded) {
+        if (encoded >>> PACKED_BITS != NBT_VERSION) {
+            return TruthTable.empty();
+        }
+
+        try {
+            return fromPacked(encoded & ((1 << PACKED_BITS) - 1));
+        } catch (IllegalArgumentException exception) {
+            return TruthTable.empty();
+        }
+    }
+
+    /**
+     * Deserialize a truth table from an NBT tag in the legacy format.
+     *
+     * @param tag NBT tag containing a serialized truth table
+     * @return the truth table
+     * @see #toLegacyNBT()
+     */
+    public static TruthTable fromLegacyNBT(CompoundTag tag) {
         if (
                 !tag.contains("Inputs", CompoundTag.TAG_BYTE_ARRAY) ||
                         !tag.contains("Outputs", CompoundTag.TAG_BYTE_ARRAY) ||
@@ -1,5 +1,7 @@
 package tchojnacki.mcpcb.util;
 
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableSet;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
@@ -22,8 +24,8 @@ import tchojnacki.mcpcb.logic.TruthTable;
 
 import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
-import java.util.Arrays;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * A trigger for advancement critetia, usable inside advancement JSON files as "mcpcb:circuit_create".
@@ -67,21 +69,44 @@ public class CircuitCreateTrigger extends SimpleCriterionTrigger<CircuitCreateTr
     // Criterion id, this needs to be put to the JSON file exactly as here
     public static final ResourceLocation ID = new ResourceLocation(String.format("%s:circuit_create", MCPCB.MOD_ID));
 
-    private static String[] extractStringArray(@Nullable JsonElement element) {
+    private static ImmutableSet<String> extractIdSet(@Nullable JsonElement element) {
         try {
             if (element != null) {
                 JsonArray jsonArray = GsonHelper.convertToJsonArray(element, "ids");
-                String[] ids = new String[jsonArray.size()];
-                for (int i = 0; i < ids.length; i++) {
-                    ids[i] = GsonHelper.convertToString(jsonArray.get(i), "id");
+                final var builder = new ImmutableSet.Builder<String>();
+                for (JsonElement idElement : jsonArray) {
+                    builder.add(GsonHelper.convertToString(idElement, "id"));
                 }
-                return ids;
+                return builder.build();
             }
         } catch (JsonSyntaxException exception) {
-            return new String[0];
+            return ImmutableSet.of();
         }
 
-        return new String[0];
+        return ImmutableSet.of();
+    }
+
+    /**
+     * Recognize the circuit contained in an item stack.
+     *
+     * @param itemStack circuit item stack
+     * @return id of the recognized circuit or null if it isn't recognized
+     */
+    @Nullable
+    private static String recognizeId(ItemStack itemStack) {
+        CompoundTag tag = itemStack.getTagElement("BlockEntityTag");
+        if (tag != null) {
+            if (tag.contains("TruthTable")) {
+                TruthTable table = TruthTable.fromNBT(tag.get("TruthTable"));
+                KnownTable recognized = table.recognize();
+
+                if (recognized != null) {
+                    return recognized.getId();
+                }
+            }
+        }
+
+        return null;
     }
 
     @Override
@@ -91,29 +116,32 @@ public class CircuitCreateTrigger extends SimpleCriterionTrigger<CircuitCreateTr
 
     @Override
     protected Instance createInstance(JsonObject jsonObject, EntityPredicate.Composite entityPredicate, DeserializationContext _arrayParser) {
-        return new Instance(entityPredicate, extractStringArray(jsonObject.get("ids")));
+        return new Instance(entityPredicate, extractIdSet(jsonObject.get("ids")));
     }
 
     /**
      * This method should be used to grant the criteria.
      * This is an overload of {@link SimpleCriterionTrigger#trigger(ServerPlayer, Predicate)}.
+     * The circuit is recognized at most once per call, and only if any of the instances needs it.
      *
      * @param serverPlayer player who crafted the circuit
      * @param itemStack    crafted circuit item
      */
     public void trigger(ServerPlayer serverPlayer, ItemStack itemStack) {
+        Supplier<String> recognizedId = Suppliers.memoize(() -> recognizeId(itemStack));
+
         // Call the build-in trigger method
-        this.trigger(serverPlayer, instance -> instance.matches(itemStack));
+        this.trigger(serverPlayer, instance -> instance.matches(recognizedId));
     }
 
     /**
      * Single criterion instance.
-     * Contains optional array of strings containing known circuit ids to check.
+     * Contains optional set of known circuit ids to check.
      */
     public static class Instance extends AbstractCriterionTriggerInstance {
-        private final String[] ids;
+        private final ImmutableSet<String> ids;
 
-        public Instance(EntityPredicate.Composite p_i231597_1_, String[] ids) {
+        public Instance(EntityPredicate.Composite p_i231597_1_, ImmutableSet<String> ids) {
             super(CircuitCreateTrigger.ID, p_i231597_1_);
             this.ids = ids;
         }
@@ -121,28 +149,16 @@ public class CircuitCreateTrigger extends SimpleCriterionTrigger<CircuitCreateTr
         /**
          * Check if we should grant the criteria - if crafted circuit has any of the mentioned ids.
          *
-         * @param itemStack circuit item stack
-         * @return whether we should grant the criteria for a given {@code itemStack} or not
+         * @param recognizedId supplier of crafted circuit's id, which gives null if the circuit isn't recognized
+         * @return whether we should grant the criteria for the crafted circuit or not
          */
-        public boolean matches(ItemStack itemStack) {
-            if (ids.length == 0) {
+        public boolean matches(Supplier<String> recognizedId) {
+            if (ids.isEmpty()) {
                 return true;
             }
 
-            CompoundTag tag = itemStack.getTagElement("BlockEntityTag");
-            if (tag != null) {
-                if (tag.contains("TruthTable", CompoundTag.TAG_COMPOUND)) {
-                    TruthTable table = TruthTable.fromNBT(tag.getCompound("TruthTable"));
-                    KnownTable recognized = table.recognize();
-
-                    if (recognized != null) {
-                        return Arrays.stream(ids).anyMatch(id -> recognized.getId().equals(id));
-                    }
-                }
-            }
-
-
-            return false;
+            String id = recognizedId.get();
+            return id != null && ids.contains(id);
         }
     }
 }
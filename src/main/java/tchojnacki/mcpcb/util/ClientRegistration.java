@@ -63,6 +63,9 @@ public class ClientRegistration {
         if (baseModel != null && !(baseModel instanceof CircuitItemBaseModel)) {
             event.getModelRegistry().put(itemModelResourceLocation, new CircuitItemBaseModel(baseModel));
         }
+
+        // Cached quads might use sprites from before the reload
+        CircuitTopFaceBakery.clearCache();
     }
 
     /**
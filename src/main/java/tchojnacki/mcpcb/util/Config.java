@@ -0,0 +1,181 @@
+package tchojnacki.mcpcb.util;
+
+import net.minecraftforge.common.ForgeConfigSpec;
+import tchojnacki.mcpcb.logic.CircuitSimulator;
+import tchojnacki.mcpcb.logic.TruthTable;
+
+/**
+ * Server side configuration of the mod, stored in serverconfig/mcpcb-server.toml of each world.
+ * Registered in {@link Registration#register()}.
+ * <p>
+ * Values are only available once the world is loaded, so they must never be read on the client side.
+ *
+ * @see <a href="https://mcforge.readthedocs.io/en/1.18.x/misc/config/">Configuration - Forge Documentation</a>
+ */
+public final class Config {
+    public static final ForgeConfigSpec SERVER_SPEC;
+
+    /**
+     * Whether circuits wired directly into each other should get evaluated as a single group.
+     *
+     * @see tchojnacki.mcpcb.logic.CircuitCluster
+     */
+    public static final ForgeConfigSpec.BooleanValue FUSE_CLUSTERS;
+
+    /**
+     * Biggest number of circuits that can be fused into a single cluster.
+     */
+    public static final ForgeConfigSpec.IntValue MAX_CLUSTER_SIZE;
+
+    /**
+     * Whether circuits should be evaluated in batches before and after each tick.
+     *
+     * @see tchojnacki.mcpcb.logic.CircuitBatch
+     */
+    public static final ForgeConfigSpec.BooleanValue BATCH_EVALUATION;
+
+    /**
+     * Minimum batch size evaluated in parallel. Evaluating a truth table is a single shift, so a batch has to be
+     * very big before splitting it between threads pays off.
+     */
+    public static final ForgeConfigSpec.IntValue PARALLEL_THRESHOLD;
+
+    /**
+     * Whether pending ticks of circuits, whose output returned to its previous state before the tick, should get cancelled.
+     */
+    public static final ForgeConfigSpec.BooleanValue COALESCE_PULSES;
+
+    /**
+     * Whether circuits changing their output too often should get frozen.
+     *
+     * @see tchojnacki.mcpcb.logic.OscillationTracker
+     */
+    public static final ForgeConfigSpec.BooleanValue DAMP_OSCILLATIONS;
+
+    /**
+     * Number of output changes within {@link #OSCILLATION_WINDOW} after which a circuit is considered oscillating.
+     */
+    public static final ForgeConfigSpec.IntValue OSCILLATION_THRESHOLD;
+
+    /**
+     * Length of the window in which output changes are counted, in ticks.
+     */
+    public static final ForgeConfigSpec.IntValue OSCILLATION_WINDOW;
+
+    /**
+     * For how many ticks oscillating circuits get frozen.
+     */
+    public static final ForgeConfigSpec.IntValue FREEZE_DURATION;
+
+    /**
+     * Whether truth tables should be saved in the format readable by older versions of the mod.
+     *
+     * @see #legacyTableFormat()
+     */
+    public static final ForgeConfigSpec.BooleanValue LEGACY_TABLE_FORMAT;
+
+    static {
+        final var builder = new ForgeConfigSpec.Builder();
+
+        builder.push("circuits");
+
+        FUSE_CLUSTERS = builder
+                .comment(
+                        "Evaluate circuits placed directly next to each other as a single group.",
+                        "Every circuit keeps its own delay, only the circuits with outputs leading out of such group update their neighbours."
+                )
+                .define("fuseClusters", true);
+
+        MAX_CLUSTER_SIZE = builder
+                .comment("Maximum number of circuits fused into a single group, bigger groups are simulated one circuit at a time.")
+                .defineInRange("maxClusterSize", 256, 2, 4096);
+
+        BATCH_EVALUATION = builder
+                .comment(
+                        "Evaluate circuits receiving updates together before and after each tick, instead of one by one.",
+                        "Outputs still change after the same delay, but input changes reverted within a single tick are never seen."
+                )
+                .define("batchEvaluation", false);
+
+        PARALLEL_THRESHOLD = builder
+                .comment(
+                        "Minimum number of circuits in a batch for their truth tables to be evaluated on multiple threads.",
+                        "Smaller batches are evaluated in a fraction of a millisecond on a single thread, faster than the threads could be started."
+                )
+                .defineInRange("parallelThreshold", 65536, 1, Integer.MAX_VALUE);
+
+        COALESCE_PULSES = builder
+                .comment(
+                        "Cancel the pending update of a circuit if its inputs return to their previous state before the update happens.",
+                        "Such update wouldn't change anything, cancelling it saves a scheduled tick."
+                )
+                .define("coalescePulses", true);
+
+        DAMP_OSCILLATIONS = builder
+                .comment(
+                        "Freeze circuits which keep changing their output (for instance circuits wired in a loop), and report them to operators.",
+                        "Frozen circuits keep their output and ignore their inputs until the freeze ends."
+                )
+                .define("dampOscillations", true);
+
+        OSCILLATION_THRESHOLD = builder
+                .comment("Number of output changes within the oscillation window, after which a circuit gets frozen.")
+                .defineInRange("oscillationThreshold", 40, 2, 10000);
+
+        OSCILLATION_WINDOW = builder
+                .comment("Length of the window in which output changes are counted, in ticks.")
+                .defineInRange("oscillationWindow", 100, 10, 72000);
+
+        FREEZE_DURATION = builder
+                .comment("For how many ticks an oscillating circuit stays frozen.")
+                .defineInRange("freezeDuration", 200, 1, 72000);
+
+        builder.pop();
+
+        builder.push("compatibility");
+
+        LEGACY_TABLE_FORMAT = builder
+                .comment(
+                        "Save truth tables in the bigger format used up to version 1.0.3 of the mod, so that those versions can still read them.",
+                        "Disable it to save them in a smaller format, data saved while it is disabled can't be read by older versions of the mod."
+                )
+                .define("legacyTableFormat", true);
+
+        builder.pop();
+
+        SERVER_SPEC = builder.build();
+    }
+
+    /**
+     * Collect the values used by the circuit simulation. Must only be called on the server side.
+     *
+     * @return current simulation settings
+     */
+    public static CircuitSimulator.Settings simulationSettings() {
+        return new CircuitSimulator.Settings(
+                FUSE_CLUSTERS.get(),
+                MAX_CLUSTER_SIZE.get(),
+                BATCH_EVALUATION.get(),
+                PARALLEL_THRESHOLD.get(),
+                COALESCE_PULSES.get(),
+                DAMP_OSCILLATIONS.get(),
+                OSCILLATION_THRESHOLD.get(),
+                OSCILLATION_WINDOW.get(),
+                FREEZE_DURATION.get()
+        );
+    }
+
+    /**
+     * Get the format in which truth tables should be saved. Unlike the other values, it is also needed outside of
+     * a running server (e.g. for item stacks created on the client), the default value is used there.
+     *
+     * @return whether truth tables should be saved in the legacy format
+     * @see TruthTable#toNBT(boolean)
+     */
+    public static boolean legacyTableFormat() {
+        return SERVER_SPEC.isLoaded() ? LEGACY_TABLE_FORMAT.get() : LEGACY_TABLE_FORMAT.getDefault();
+    }
+
+    private Config() {
+    }
+}
@@ -11,16 +11,23 @@ import java.util.function.Supplier;
 /**
  * Circuit name gets customized on client-side which means it needs to get sent to server-side
  * using network packets (even if we are in a singleplayer world).
+ * <p>
+ * The screen only sends the name once the player stops typing, each packet is numbered by the screen
+ * so that the server can ignore names superseded by ones it has already applied.
+ *
+ * @see tchojnacki.mcpcb.client.screen.MultimeterContainerScreen
  */
-public record MultimeterScreenRenamePacket(String newName) {
+public record MultimeterScreenRenamePacket(int sequence, String newName) {
     public static MultimeterScreenRenamePacket decode(FriendlyByteBuf buffer) {
         return new MultimeterScreenRenamePacket(
+                buffer.readVarInt(),
                 // Don't use the argumentless overload, it is defined only for client
                 buffer.readUtf(32767)
         );
     }
 
     public void encode(FriendlyByteBuf buffer) {
+        buffer.writeVarInt(this.sequence);
         buffer.writeUtf(this.newName);
     }
 
@@ -35,7 +42,7 @@ public record MultimeterScreenRenamePacket(String newName) {
                 // Don't ever trust the client, check the new name
                 String filteredName = SharedConstants.filterText(this.newName);
                 if (filteredName.length() <= MultimeterContainer.MAX_NAME_CHARS) {
-                    multimeterContainer.setName(filteredName);
+                    multimeterContainer.rename(this.sequence, filteredName);
                 }
             }
         });
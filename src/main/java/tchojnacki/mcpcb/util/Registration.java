@@ -2,6 +2,7 @@ package tchojnacki.mcpcb.util;
 
 import net.minecraft.MethodsReturnNonnullByDefault;
 import net.minecraft.advancements.CriteriaTriggers;
+import net.minecraft.nbt.CompoundTag;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.inventory.MenuType;
 import net.minecraft.world.item.BlockItem;
@@ -12,6 +13,8 @@ import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.entity.BlockEntityType;
 import net.minecraftforge.common.extensions.IForgeMenuType;
 import net.minecraftforge.eventbus.api.IEventBus;
+import net.minecraftforge.fml.ModLoadingContext;
+import net.minecraftforge.fml.config.ModConfig;
 import net.minecraftforge.fml.javafmlmod.FMLJavaModLoadingContext;
 import net.minecraftforge.registries.DeferredRegister;
 import net.minecraftforge.registries.ForgeRegistries;
@@ -29,6 +32,7 @@ import tchojnacki.mcpcb.common.block.entities.CircuitBlockEntity;
 import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * Registration of things used on both sides.
@@ -53,8 +57,8 @@ public final class Registration {
     public static final RegistryObject<Item> MULTIMETER_ITEM = Registration.ITEMS.register(MultimeterItem.ID, MultimeterItem::new);
 
     // BlockItems
-    public static final RegistryObject<Item> BREADBOARD_BLOCK_ITEM = registerBlockItem(BREADBOARD_BLOCK, true, null);
-    public static final RegistryObject<Item> CIRCUIT_BLOCK_ITEM = registerBlockItem(CIRCUIT_BLOCK, false, CircuitBlock::onCrafted);
+    public static final RegistryObject<Item> BREADBOARD_BLOCK_ITEM = registerBlockItem(BREADBOARD_BLOCK, true, null, null);
+    public static final RegistryObject<Item> CIRCUIT_BLOCK_ITEM = registerBlockItem(CIRCUIT_BLOCK, false, CircuitBlock::onCrafted, CircuitBlock::normalizeItemTag);
 
     // Containers
     public static final RegistryObject<MenuType<ScrewdriverContainer>> SCREWDRIVER_CONTAINER = Registration.CONTAINERS.register(ScrewdriverContainer.ID, () -> IForgeMenuType.create(ScrewdriverContainer::createContainerClientSide));
@@ -72,6 +76,9 @@ public final class Registration {
         CONTAINERS.register(modEventBus);
         TILE_ENTITIES.register(modEventBus);
 
+        ModLoadingContext.get().registerConfig(ModConfig.Type.SERVER, Config.SERVER_SPEC);
+        ServerEvents.register();
+
         PacketHandler.INSTANCE.registerMessage(
                 0,
                 MultimeterScreenRenamePacket.class,
@@ -90,9 +97,10 @@ public final class Registration {
      * @param block      block for which we register the block item
      * @param putInGroup whether to put the item in the creative tab
      * @param onCrafted  optional handler for "onCraftedBy" event, pass null if unused
+     * @param onLoad     optional handler called with the tag of a loaded item stack, pass null if unused
      * @return registry object containing the block item
      */
-    private static RegistryObject<Item> registerBlockItem(RegistryObject<Block> block, boolean putInGroup, @Nullable BiConsumer<ItemStack, Player> onCrafted) {
+    private static RegistryObject<Item> registerBlockItem(RegistryObject<Block> block, boolean putInGroup, @Nullable BiConsumer<ItemStack, Player> onCrafted, @Nullable Consumer<CompoundTag> onLoad) {
         return Registration.ITEMS.register(
                 block.getId().getPath(),
                 () -> new BlockItem(
@@ -107,6 +115,15 @@ public final class Registration {
                             onCrafted.accept(itemStack, playerEntity);
                         }
                     }
+
+                    @Override
+                    public void verifyTagAfterLoad(CompoundTag tag) {
+                        super.verifyTagAfterLoad(tag);
+
+                        if (onLoad != null) {
+                            onLoad.accept(tag);
+                        }
+                    }
                 }
         );
     }
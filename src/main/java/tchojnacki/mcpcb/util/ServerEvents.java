@@ -0,0 +1,80 @@
+package tchojnacki.mcpcb.util;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.world.BlockEvent;
+import net.minecraftforge.event.world.ChunkEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import tchojnacki.mcpcb.common.block.CircuitBlock;
+import tchojnacki.mcpcb.common.block.entities.CircuitBlockEntity;
+import tchojnacki.mcpcb.logic.BoardAccelerator;
+import tchojnacki.mcpcb.logic.CircuitBatch;
+
+import java.util.List;
+
+/**
+ * Responsible for handling game events (fired on Forge's event bus) on the server side.
+ */
+public class ServerEvents {
+    public static void register() {
+        MinecraftForge.EVENT_BUS.register(ServerEvents.class);
+    }
+
+    /**
+     * Re-evaluate circuits of a loaded chunk. Their outputs reflect the state from when the chunk was saved,
+     * while their inputs might have changed since. Instead of waiting for neighbour updates, all of the circuits
+     * get added to the next batch, which only schedules ticks for circuits whose output actually changes.
+     * Only done if batch evaluation is enabled, otherwise circuits keep waiting for neighbour updates.
+     *
+     * @see CircuitBlock#evaluateBatch(ServerLevel, List)
+     */
+    @SubscribeEvent
+    public static void onChunkLoad(ChunkEvent.Load event) {
+        // The config is only loaded on the server, check the side first
+        if (event.getWorld() instanceof ServerLevel serverLevel && event.getChunk() instanceof LevelChunk chunk && Config.BATCH_EVALUATION.get()) {
+            for (BlockEntity blockEntity : chunk.getBlockEntities().values()) {
+                if (blockEntity instanceof CircuitBlockEntity) {
+                    CircuitBatch.enqueue(serverLevel, blockEntity.getBlockPos());
+                }
+            }
+        }
+    }
+
+    /**
+     * Evaluate circuits collected since the last batch.
+     * <p>
+     * Batches are evaluated both before and after the level's tick. Updates from the level's tick (e.g. outputs of
+     * other circuits) are evaluated after it, at the same game time as they would be one by one. Updates from
+     * between the ticks (e.g. players using levers) are evaluated before the next one, while the game time still
+     * matches. Otherwise the ticks they schedule would miss the next block tick phase and fire one tick late.
+     *
+     * @see CircuitBatch
+     */
+    @SubscribeEvent
+    public static void onWorldTick(TickEvent.WorldTickEvent event) {
+        if (event.world instanceof ServerLevel serverLevel) {
+            List<BlockPos> batch = CircuitBatch.drain(serverLevel);
+
+            if (!batch.isEmpty()) {
+                ((CircuitBlock) Registration.CIRCUIT_BLOCK.get()).evaluateBatch(serverLevel, batch);
+            }
+        }
+    }
+
+    /**
+     * Cancel neighbour updates coming from inside of accelerated boards, their redstone isn't simulated.
+     * Covers both redstone changing its state and blocks placed on top of the board.
+     *
+     * @see BoardAccelerator#isInsideAcceleratedBoard(BlockPos)
+     */
+    @SubscribeEvent
+    public static void onNeighborNotify(BlockEvent.NeighborNotifyEvent event) {
+        if (event.getWorld() instanceof ServerLevel serverLevel && BoardAccelerator.get(serverLevel).isInsideAcceleratedBoard(event.getPos())) {
+            event.setCanceled(true);
+        }
+    }
+}
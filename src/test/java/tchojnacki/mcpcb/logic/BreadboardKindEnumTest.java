@@ -20,6 +20,14 @@ class BreadboardKindEnumTest {
         assertEquals(BoardSocket.State.Output, BreadboardKindEnum.OUTPUT_WEST.getState());
     }
 
+    @Test
+    void getDirection() {
+        assertNull(BreadboardKindEnum.NORMAL.getDirection());
+        assertEquals(Direction.NORTH, BreadboardKindEnum.INPUT_NORTH.getDirection());
+        assertEquals(Direction.EAST, BreadboardKindEnum.OUTPUT_EAST.getDirection());
+        assertEquals(Direction.WEST, BreadboardKindEnum.OUTPUT_WEST.getDirection());
+    }
+
     @Test
     void getKindForSocket() {
         ArrayList<BlockPos> mockBlocks = new ArrayList<>(Collections.emptyList());
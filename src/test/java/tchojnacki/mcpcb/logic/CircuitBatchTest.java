@@ -0,0 +1,93 @@
+package tchojnacki.mcpcb.logic;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBatchTest {
+    private final List<TruthTable> sampleTables = List.of(
+            TruthTable.empty(),
+            TruthTable.fromBoolFunc(RelDir.BACK, RelDir.FRONT, l -> !l.get(0)),
+            TruthTable.fromBoolFunc(Arrays.asList(RelDir.RIGHT, RelDir.LEFT), RelDir.FRONT, l -> !(l.get(0) && l.get(1))),
+            TruthTable.fromBoolFunc(
+                    Arrays.asList(RelDir.RIGHT, RelDir.LEFT),
+                    Arrays.asList(RelDir.FRONT, RelDir.BACK),
+                    Arrays.asList(
+                            l -> l.get(0) != l.get(1),
+                            l -> l.get(0) && l.get(1)
+                    )
+            )
+    );
+
+    @Test
+    void parallelMatchesSerial() {
+        final int n = 10000;
+        final var random = new Random(42);
+        final var tables = new TruthTable[n];
+        final int[] inputMasks = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            tables[i] = sampleTables.get(random.nextInt(sampleTables.size()));
+            inputMasks[i] = random.nextInt(16);
+        }
+
+        int[] serial = CircuitBatch.evaluate(tables, inputMasks, Integer.MAX_VALUE);
+        int[] parallel = CircuitBatch.evaluate(tables, inputMasks, 1);
+
+        assertArrayEquals(serial, parallel);
+
+        for (int i = 0; i < n; i++) {
+            assertEquals(tables[i].getOutputMask(inputMasks[i]), serial[i]);
+        }
+    }
+
+    @Test
+    void batchTimingMatchesSerial() {
+        // Pulses of one, two and three ticks
+        final boolean[] pattern = {true, false, false, true, true, false, false, true, true, true, false, false, false, false, false, false};
+        final var buffer = TruthTable.fromBoolFunc(RelDir.BACK, RelDir.FRONT, l -> l.get(0));
+        final var not = TruthTable.fromBoolFunc(RelDir.BACK, RelDir.FRONT, l -> !l.get(0));
+
+        // A threshold of one makes even the smallest batches go through the parallel evaluation
+        final var serial = new TestCircuitWorld(TestCircuitWorld.settings(false, false, Integer.MAX_VALUE, true));
+        final var batch = new TestCircuitWorld(TestCircuitWorld.settings(false, true, 1, true));
+
+        final var traces = new ArrayList<List<List<Integer>>>();
+        for (TestCircuitWorld world : List.of(serial, batch)) {
+            final var source = BlockPos.ZERO;
+            // Two chains powered by the same block, so that the batches have more than one circuit
+            for (int i = 1; i <= 6; i++) {
+                world.place(source.north(i), i % 2 == 0 ? buffer : not, Direction.NORTH);
+                world.place(source.east(i), i == 6 ? not : buffer, Direction.EAST);
+            }
+            for (int t = 0; t < 10; t++) {
+                world.step();
+            }
+
+            final var trace = new ArrayList<List<Integer>>();
+            for (boolean powered : pattern) {
+                // The block is changed by a player, between the ticks
+                world.setPowered(source, powered);
+                world.step();
+                trace.add(world.outputs());
+            }
+            traces.add(trace);
+        }
+
+        assertEquals(traces.get(0), traces.get(1));
+        assertEquals(0, serial.getBatchedCircuits());
+        assertTrue(batch.getBatchedCircuits() > 0);
+    }
+
+    @Test
+    void differentLengths() {
+        assertThrows(IllegalArgumentException.class, () -> CircuitBatch.evaluate(new TruthTable[]{TruthTable.empty()}, new int[0], 1));
+    }
+}
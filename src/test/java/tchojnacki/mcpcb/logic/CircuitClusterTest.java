@@ -0,0 +1,84 @@
+package tchojnacki.mcpcb.logic;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitClusterTest {
+    private TruthTable tableNot, tableBuffer;
+
+    @BeforeEach
+    void setUp() {
+        tableNot = TruthTable.fromBoolFunc(RelDir.BACK, RelDir.FRONT, l -> !l.get(0));
+        tableBuffer = TruthTable.fromBoolFunc(RelDir.RIGHT, RelDir.FRONT, l -> l.get(0));
+    }
+
+    @Test
+    void chain() {
+        // Two NOT gates facing north, the first one powers the second one
+        BlockPos first = new BlockPos(0, 0, 0);
+        BlockPos second = new BlockPos(0, 0, -1);
+
+        CircuitCluster cluster = CircuitCluster.compile(
+                Arrays.asList(second, first),
+                Arrays.asList(tableNot, tableNot),
+                Arrays.asList(Direction.NORTH, Direction.NORTH)
+        );
+
+        // Members are sorted topologically
+        assertEquals(Arrays.asList(first, second), cluster.getMembers());
+        assertEquals(1, cluster.indexOf(second));
+        assertEquals(-1, cluster.indexOf(new BlockPos(0, 0, 1)));
+
+        assertFalse(cluster.hasBoundaryOutput(0));
+        assertTrue(cluster.hasBoundaryOutput(1));
+    }
+
+    @Test
+    void evaluateMember() {
+        BlockPos first = new BlockPos(0, 0, 0);
+        BlockPos second = new BlockPos(0, 0, -1);
+
+        CircuitCluster cluster = CircuitCluster.compile(
+                Arrays.asList(first, second),
+                Arrays.asList(tableNot, tableNot),
+                Arrays.asList(Direction.NORTH, Direction.NORTH)
+        );
+
+        // Inputs from outside of the cluster are read from the world
+        assertEquals(1, cluster.evaluateMember(0, member -> fail("Member output was read."), (pos, dir) -> false));
+        assertEquals(0, cluster.evaluateMember(0, member -> fail("Member output was read."), (pos, dir) -> pos.equals(first) && dir == Direction.SOUTH));
+
+        // Inputs driven by other members are read from their outputs
+        assertEquals(0, cluster.evaluateMember(1, member -> member == 0 ? 1 : 0, (pos, dir) -> fail("Input inside of the cluster was read.")));
+        assertEquals(1, cluster.evaluateMember(1, member -> 0, (pos, dir) -> fail("Input inside of the cluster was read.")));
+    }
+
+    @Test
+    void feedbackLoop() {
+        assertThrows(IllegalArgumentException.class, () -> CircuitCluster.compile(
+                Arrays.asList(new BlockPos(0, 0, 0), new BlockPos(0, 0, -1), new BlockPos(1, 0, -1), new BlockPos(1, 0, 0)),
+                Collections.nCopies(4, tableBuffer),
+                Arrays.asList(Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST)
+        ));
+    }
+
+    @Test
+    void invalidate() {
+        CircuitCluster cluster = CircuitCluster.compile(
+                Collections.singletonList(BlockPos.ZERO),
+                Collections.singletonList(tableNot),
+                Collections.singletonList(Direction.NORTH)
+        );
+
+        assertTrue(cluster.isValid());
+        cluster.invalidate();
+        assertFalse(cluster.isValid());
+    }
+}
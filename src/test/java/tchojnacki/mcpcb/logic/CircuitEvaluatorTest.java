@@ -0,0 +1,61 @@
+package tchojnacki.mcpcb.logic;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitEvaluatorTest {
+    private final TruthTable tableTrue = TruthTable.fromBoolFunc(
+            Collections.emptyList(),
+            Arrays.asList(RelDir.FRONT, RelDir.LEFT),
+            Arrays.asList(l -> true, l -> true)
+    );
+    private final TruthTable tableNot = TruthTable.fromBoolFunc(RelDir.BACK, RelDir.FRONT, l -> !l.get(0));
+    private final TruthTable tableNand = TruthTable.fromBoolFunc(
+            Arrays.asList(RelDir.RIGHT, RelDir.LEFT),
+            RelDir.FRONT,
+            l -> !(l.get(0) && l.get(1))
+    );
+
+    @Test
+    void forTable() {
+        assertInstanceOf(CircuitEvaluator.Blank.class, CircuitEvaluator.forTable(TruthTable.empty()));
+        assertEquals(new CircuitEvaluator.Constant(0b1001), CircuitEvaluator.forTable(tableTrue));
+        assertEquals(new CircuitEvaluator.SingleInput(RelDir.BACK, 0b0001, 0b0000), CircuitEvaluator.forTable(tableNot));
+        assertInstanceOf(CircuitEvaluator.Generic.class, CircuitEvaluator.forTable(tableNand));
+    }
+
+    @Test
+    void dependsOnInputs() {
+        assertFalse(CircuitEvaluator.forTable(TruthTable.empty()).dependsOnInputs());
+        assertFalse(CircuitEvaluator.forTable(tableTrue).dependsOnInputs());
+        assertTrue(CircuitEvaluator.forTable(tableNot).dependsOnInputs());
+        assertTrue(CircuitEvaluator.forTable(tableNand).dependsOnInputs());
+    }
+
+    @Test
+    void evaluateMatchesTable() {
+        for (TruthTable table : List.of(TruthTable.empty(), tableTrue, tableNot, tableNand)) {
+            CircuitEvaluator evaluator = CircuitEvaluator.forTable(table);
+
+            for (int mask = 0; mask < 16; mask++) {
+                final int inputMask = mask;
+                assertEquals(table.getOutputMask(inputMask), evaluator.evaluate(side -> (inputMask & (1 << side)) != 0));
+            }
+        }
+    }
+
+    @Test
+    void readsOnlyInputs() {
+        CircuitEvaluator.forTable(tableNand).evaluate(side -> {
+            assertTrue(side == RelDir.RIGHT.ordinal() || side == RelDir.LEFT.ordinal());
+            return true;
+        });
+
+        CircuitEvaluator.forTable(tableTrue).evaluate(side -> fail("Constant circuits shouldn't read inputs."));
+    }
+}
@@ -0,0 +1,169 @@
+package tchojnacki.mcpcb.logic;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitSimulatorTest {
+    private final static BlockPos SOURCE = new BlockPos(0, 0, 1);
+    private final static BlockPos SPLITTER = new BlockPos(0, 0, 0);
+    private final static BlockPos BUFFER = new BlockPos(0, 0, -1);
+    private final static BlockPos FAR_NOT = new BlockPos(0, 0, -2);
+    private final static BlockPos NEAR_NOT = new BlockPos(-1, 0, 0);
+
+    // Pulses of one, two and three ticks, with gaps of different lengths in between
+    private final static boolean[] PATTERN = {
+            true, false, false, false, true, true, false, false, false, false,
+            true, false, true, false, true, true, true, false, true, true,
+            false, false, false, false, false, false, true, false, false, false
+    };
+
+    /**
+     * Build a cluster of four circuits, with members one and two circuits away from the one powered from outside:
+     * <pre>
+     *   F
+     *   B
+     * N S
+     *   *
+     * </pre>
+     * The splitter S copies its back input to its front and left side, the buffer B copies it further,
+     * the near NOT gate N and the far NOT gate F output outside the cluster.
+     *
+     * @param world the world
+     */
+    private void buildCluster(TestCircuitWorld world) {
+        world.place(SPLITTER, TruthTable.fromBoolFunc(
+                List.of(RelDir.BACK),
+                Arrays.asList(RelDir.FRONT, RelDir.LEFT),
+                Arrays.asList(l -> l.get(0), l -> l.get(0))
+        ), Direction.NORTH);
+        world.place(BUFFER, TruthTable.fromBoolFunc(RelDir.BACK, RelDir.FRONT, l -> l.get(0)), Direction.NORTH);
+        world.place(FAR_NOT, TruthTable.fromBoolFunc(RelDir.BACK, RelDir.FRONT, l -> !l.get(0)), Direction.NORTH);
+        world.place(NEAR_NOT, TruthTable.fromBoolFunc(RelDir.BACK, RelDir.FRONT, l -> !l.get(0)), Direction.WEST);
+    }
+
+    /**
+     * Drive the cluster with {@link #PATTERN}, changing the input between the ticks.
+     *
+     * @param world the world
+     * @return outputs of the circuits after each tick
+     */
+    private List<List<Integer>> trace(TestCircuitWorld world) {
+        buildCluster(world);
+        for (int i = 0; i < 5; i++) {
+            world.step();
+        }
+
+        final var trace = new ArrayList<List<Integer>>();
+        for (boolean powered : PATTERN) {
+            world.setPowered(SOURCE, powered);
+            world.step();
+            trace.add(world.outputs());
+        }
+
+        return trace;
+    }
+
+    @Test
+    void clusterKeepsPerCircuitTiming() {
+        for (boolean coalesce : new boolean[]{false, true}) {
+            final var plainWorld = new TestCircuitWorld(TestCircuitWorld.settings(false, false, Integer.MAX_VALUE, coalesce));
+            final var fusedWorld = new TestCircuitWorld(TestCircuitWorld.settings(true, false, Integer.MAX_VALUE, coalesce));
+
+            final var plain = trace(plainWorld);
+            final var fused = trace(fusedWorld);
+
+            assertEquals(plain, fused, coalesce ? "with coalescing" : "without coalescing");
+            assertTrue(fusedWorld.getNeighbourUpdates() < plainWorld.getNeighbourUpdates());
+
+            final var cluster = fusedWorld.getCircuit(SPLITTER).getCluster();
+            assertNotNull(cluster);
+            assertEquals(4, cluster.getMembers().size());
+        }
+    }
+
+    @Test
+    void pulsesReachTheFarEnd() {
+        final var world = new TestCircuitWorld(TestCircuitWorld.settings(true, false, Integer.MAX_VALUE, false));
+        buildCluster(world);
+        for (int i = 0; i < 5; i++) {
+            world.step();
+        }
+
+        final var farNot = world.getCircuit(FAR_NOT);
+        final var nearNot = world.getCircuit(NEAR_NOT);
+        final int front = 1 << RelDir.FRONT.ordinal();
+
+        assertEquals(front, farNot.getActualOutputMask());
+        assertEquals(front, nearNot.getActualOutputMask());
+
+        // A single tick pulse travels one circuit per tick
+        world.setPowered(SOURCE, true);
+        world.step();
+        world.setPowered(SOURCE, false);
+        world.step();
+        assertEquals(0, nearNot.getActualOutputMask());
+        assertEquals(front, farNot.getActualOutputMask());
+        world.step();
+        assertEquals(front, nearNot.getActualOutputMask());
+        assertEquals(0, farNot.getActualOutputMask());
+        world.step();
+        assertEquals(front, farNot.getActualOutputMask());
+    }
+
+    @Test
+    void loadedCircuitsInBatchMatchNeighbourUpdates() {
+        for (boolean fuse : new boolean[]{false, true}) {
+            final var traces = new ArrayList<List<List<Integer>>>();
+
+            for (boolean batch : new boolean[]{false, true}) {
+                final var world = new TestCircuitWorld(TestCircuitWorld.settings(fuse, batch, 1, true));
+                buildCluster(world);
+                for (int i = 0; i < 5; i++) {
+                    world.step();
+                }
+
+                // The input changed while the circuits were unloaded
+                world.setPoweredSilently(SOURCE, true);
+                if (batch) {
+                    world.enqueueAll();
+                } else {
+                    List.of(SPLITTER, BUFFER, FAR_NOT, NEAR_NOT).forEach(world.getSimulator()::calculatePower);
+                }
+
+                final var trace = new ArrayList<List<Integer>>();
+                for (int i = 0; i < 5; i++) {
+                    world.step();
+                    trace.add(world.outputs());
+                }
+                traces.add(trace);
+            }
+
+            assertEquals(traces.get(0), traces.get(1), fuse ? "with clusters" : "without clusters");
+        }
+    }
+
+    @Test
+    void batchSkipsFrozenCircuits() {
+        final var world = new TestCircuitWorld(TestCircuitWorld.settings(true, true, 1, true));
+        buildCluster(world);
+        for (int i = 0; i < 5; i++) {
+            world.step();
+        }
+
+        world.getOscillationTracker().freeze(SPLITTER, world.getGameTime(), 3, 20);
+        world.setPoweredSilently(SOURCE, true);
+        world.enqueueAll();
+
+        world.step();
+        world.step();
+        assertEquals(0, world.getCircuit(SPLITTER).getActualOutputMask());
+        assertFalse(world.hasScheduledTick(SPLITTER));
+    }
+}
@@ -0,0 +1,67 @@
+package tchojnacki.mcpcb.logic;
+
+import net.minecraft.core.BlockPos;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OscillationTrackerTest {
+    private final static BlockPos POS = new BlockPos(1, 2, 3);
+    private final static int WINDOW = 10;
+    private final static int THRESHOLD = 3;
+
+    @Test
+    void recordToggle() {
+        final var tracker = new OscillationTracker();
+
+        assertFalse(tracker.recordToggle(POS, 0, WINDOW, THRESHOLD));
+        assertFalse(tracker.recordToggle(POS, 1, WINDOW, THRESHOLD));
+        assertTrue(tracker.recordToggle(POS, 2, WINDOW, THRESHOLD));
+
+        // Changes are counted per window
+        assertFalse(tracker.recordToggle(POS, 10, WINDOW, THRESHOLD));
+        assertFalse(tracker.recordToggle(POS, 11, WINDOW, THRESHOLD));
+    }
+
+    @Test
+    void freezeAndThaw() {
+        final var tracker = new OscillationTracker();
+
+        assertTrue(tracker.freeze(POS, 100, 20, WINDOW));
+        assertTrue(tracker.isFrozen(POS, 119));
+        assertEquals(120, tracker.getFrozenUntil(POS));
+        assertFalse(tracker.thaw(POS, 119));
+
+        assertFalse(tracker.isFrozen(POS, 120));
+        assertTrue(tracker.thaw(POS, 120));
+        assertFalse(tracker.thaw(POS, 121));
+
+        // Frozen again soon after the freeze ended, it is the same episode
+        assertFalse(tracker.freeze(POS, 125, 20, WINDOW));
+        assertTrue(tracker.thaw(POS, 145));
+        assertTrue(tracker.freeze(POS, 200, 20, WINDOW));
+    }
+
+    @Test
+    void staleEntriesAreDropped() {
+        final var tracker = new OscillationTracker();
+        final var other = POS.above();
+
+        tracker.recordToggle(POS, 0, WINDOW, THRESHOLD);
+        tracker.freeze(other, 0, 20, WINDOW);
+        assertEquals(2, tracker.size());
+
+        // The counting window of POS is over, while other is still frozen
+        tracker.recordToggle(POS.below(), 15, WINDOW, THRESHOLD);
+        assertEquals(2, tracker.size());
+        assertTrue(tracker.isFrozen(other, 15));
+
+        // The freeze of other ended more than a window ago
+        tracker.thaw(other, 20);
+        tracker.recordToggle(POS.below(), 40, WINDOW, THRESHOLD);
+        assertEquals(1, tracker.size());
+
+        tracker.remove(POS.below());
+        assertEquals(0, tracker.size());
+    }
+}
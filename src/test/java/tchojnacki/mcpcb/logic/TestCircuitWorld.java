@@ -0,0 +1,295 @@
+package tchojnacki.mcpcb.logic;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link CircuitWorld} over plain maps, ticked the same way as a server level:
+ * batches queued before the tick, game time increment, scheduled ticks, batches queued during the tick.
+ */
+class TestCircuitWorld implements CircuitWorld {
+    static class TestCircuit implements SimulatedCircuit {
+        private final TruthTable truthTable;
+        private final Direction facing;
+        private int actualOutput = 0;
+        private int queuedOutput = 0;
+        private boolean clusterResolved = false;
+        private CircuitCluster cluster = null;
+
+        TestCircuit(TruthTable truthTable, Direction facing) {
+            this.truthTable = truthTable;
+            this.facing = facing;
+        }
+
+        @Override
+        public TruthTable getTruthTable() {
+            return truthTable;
+        }
+
+        @Override
+        public Direction getFacing() {
+            return facing;
+        }
+
+        @Override
+        public int getActualOutputMask() {
+            return actualOutput;
+        }
+
+        @Override
+        public int getQueuedOutputMask() {
+            return queuedOutput;
+        }
+
+        @Override
+        public void setQueuedOutputMask(int outputMask) {
+            queuedOutput = outputMask;
+        }
+
+        @Override
+        public void updateOutput() {
+            actualOutput = queuedOutput;
+        }
+
+        @Override
+        public boolean isClusterResolved() {
+            return clusterResolved && (cluster == null || cluster.isValid());
+        }
+
+        @Nullable
+        @Override
+        public CircuitCluster getCluster() {
+            return cluster;
+        }
+
+        @Override
+        public void setCluster(@Nullable CircuitCluster cluster) {
+            this.cluster = cluster;
+            clusterResolved = true;
+        }
+
+        @Override
+        public void invalidateCluster() {
+            if (cluster != null) {
+                cluster.invalidate();
+            }
+
+            cluster = null;
+            clusterResolved = false;
+        }
+    }
+
+    private record ScheduledTick(long time, long order) {}
+
+    private final Map<BlockPos, TestCircuit> circuits = new LinkedHashMap<>();
+    private final Set<BlockPos> powerSources = new HashSet<>();
+    private final Map<BlockPos, ScheduledTick> scheduledTicks = new HashMap<>();
+    private final Set<BlockPos> batch = new HashSet<>();
+    private final OscillationTracker tracker = new OscillationTracker();
+    private final CircuitSimulator simulator;
+    private long gameTime = 0;
+    private long tickOrder = 0;
+    private int neighbourUpdates = 0;
+    private int batchedCircuits = 0;
+    private int oscillationReports = 0;
+
+    TestCircuitWorld(CircuitSimulator.Settings settings) {
+        simulator = new CircuitSimulator(this, settings);
+    }
+
+    static CircuitSimulator.Settings settings(boolean fuseClusters, boolean batchEvaluation, int parallelThreshold, boolean coalescePulses) {
+        return new CircuitSimulator.Settings(fuseClusters, 64, batchEvaluation, parallelThreshold, coalescePulses, false, 24, 20, 40);
+    }
+
+    CircuitSimulator getSimulator() {
+        return simulator;
+    }
+
+    TestCircuit place(BlockPos pos, TruthTable table, Direction facing) {
+        final var circuit = new TestCircuit(table, facing);
+        circuits.put(pos, circuit);
+        simulator.invalidateClustersAround(pos);
+        simulator.calculatePower(pos);
+        return circuit;
+    }
+
+    /**
+     * Turn a block powering all of its neighbours (like a redstone block) on or off.
+     *
+     * @param pos     position of the block
+     * @param powered whether it gives power
+     */
+    void setPowered(BlockPos pos, boolean powered) {
+        boolean changed = powered ? powerSources.add(pos) : powerSources.remove(pos);
+        if (changed) {
+            updateNeighborsAt(pos);
+        }
+    }
+
+    /**
+     * Turn a block on or off without updating its neighbours, like a change which happened while the chunk was unloaded.
+     *
+     * @param pos     position of the block
+     * @param powered whether it gives power
+     */
+    void setPoweredSilently(BlockPos pos, boolean powered) {
+        if (powered) {
+            powerSources.add(pos);
+        } else {
+            powerSources.remove(pos);
+        }
+    }
+
+    /**
+     * Add all of the circuits to the next batch, like after loading their chunk.
+     */
+    void enqueueAll() {
+        circuits.keySet().forEach(this::enqueueBatch);
+    }
+
+    void step() {
+        drainBatch();
+        gameTime++;
+
+        while (true) {
+            final var due = scheduledTicks.entrySet().stream()
+                    .filter(e -> e.getValue().time() <= gameTime)
+                    .min(Comparator.comparingLong((Map.Entry<BlockPos, ScheduledTick> e) -> e.getValue().time())
+                            .thenComparingLong(e -> e.getValue().order()));
+
+            if (due.isEmpty()) {
+                break;
+            }
+
+            BlockPos pos = due.get().getKey();
+            scheduledTicks.remove(pos);
+            simulator.tick(pos);
+        }
+
+        drainBatch();
+    }
+
+    private void drainBatch() {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        final var positions = new ArrayList<>(batch);
+        positions.sort(Comparator.comparingLong(BlockPos::asLong));
+        batch.clear();
+        simulator.evaluateBatch(positions);
+    }
+
+    /**
+     * @return actual outputs of all of the circuits, in the order they were placed
+     */
+    List<Integer> outputs() {
+        return circuits.values().stream().map(TestCircuit::getActualOutputMask).toList();
+    }
+
+    int getNeighbourUpdates() {
+        return neighbourUpdates;
+    }
+
+    int getBatchedCircuits() {
+        return batchedCircuits;
+    }
+
+    int getOscillationReports() {
+        return oscillationReports;
+    }
+
+    @Override
+    public long getGameTime() {
+        return gameTime;
+    }
+
+    @Override
+    public boolean isLoaded(BlockPos pos) {
+        return true;
+    }
+
+    @Nullable
+    @Override
+    public SimulatedCircuit getCircuit(BlockPos pos) {
+        return circuits.get(pos);
+    }
+
+    @Override
+    public boolean hasSignal(BlockPos pos, Direction direction) {
+        BlockPos neighbourPos = pos.relative(direction);
+        TestCircuit neighbour = circuits.get(neighbourPos);
+
+        if (neighbour != null) {
+            RelDir side = RelDir.getOffset(neighbour.getFacing(), direction.getOpposite());
+            return (neighbour.getActualOutputMask() & (1 << side.ordinal())) != 0;
+        }
+
+        return powerSources.contains(neighbourPos);
+    }
+
+    @Override
+    public void scheduleTick(BlockPos pos, int delay) {
+        scheduledTicks.computeIfAbsent(pos.immutable(), _pos -> new ScheduledTick(gameTime + delay, tickOrder++));
+    }
+
+    @Override
+    public boolean hasScheduledTick(BlockPos pos) {
+        return scheduledTicks.containsKey(pos);
+    }
+
+    @Override
+    public void cancelTick(BlockPos pos) {
+        scheduledTicks.remove(pos);
+    }
+
+    @Override
+    public void updateNeighborsAt(BlockPos pos) {
+        for (Direction direction : CircuitSimulator.UPDATE_ORDER) {
+            neighborChanged(pos.relative(direction), pos);
+        }
+    }
+
+    @Override
+    public void updateNeighborsAtExceptFromFacing(BlockPos pos, Direction except) {
+        for (Direction direction : CircuitSimulator.UPDATE_ORDER) {
+            if (direction != except) {
+                neighborChanged(pos.relative(direction), pos);
+            }
+        }
+    }
+
+    @Override
+    public void neighborChanged(BlockPos pos, BlockPos source) {
+        neighbourUpdates++;
+        if (circuits.containsKey(pos)) {
+            simulator.calculatePower(pos);
+        }
+    }
+
+    @Override
+    public void enqueueBatch(BlockPos pos) {
+        batchedCircuits++;
+        batch.add(pos.immutable());
+    }
+
+    @Override
+    public OscillationTracker getOscillationTracker() {
+        return tracker;
+    }
+
+    @Override
+    public void reportOscillation(BlockPos pos, int duration) {
+        oscillationReports++;
+    }
+}
@@ -1,10 +1,13 @@
 package tchojnacki.mcpcb.logic;
 
 import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.IntTag;
+import net.minecraft.nbt.Tag;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.Arrays;
+import java.util.BitSet;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -51,6 +54,22 @@ class TruthTableTest {
         assertFalse(tableEmpty.hasInputOrOutput(RelDir.FRONT));
     }
 
+    @Test
+    void fromMaskFunc() {
+        TruthTable maskNand = TruthTable.fromMaskFunc(Arrays.asList(RelDir.RIGHT, RelDir.LEFT), RelDir.FRONT, m -> m != 0b11);
+        assertEquals(tableNand.getSignature(), maskNand.getSignature());
+        assertEquals(tableNand.getSideLookup(), maskNand.getSideLookup());
+
+        TruthTable maskAdder = TruthTable.fromMaskFunc(
+                Arrays.asList(RelDir.RIGHT, RelDir.LEFT),
+                Arrays.asList(RelDir.FRONT, RelDir.BACK),
+                Arrays.asList(m -> Integer.bitCount(m) == 1, m -> m == 0b11)
+        );
+        assertEquals(tableAdder.getSignature(), maskAdder.getSignature());
+
+        assertEquals(tableNot.getSignature(), TruthTable.fromMaskFunc(RelDir.BACK, RelDir.FRONT, m -> m == 0).getSignature());
+    }
+
     @Test
     void getOutputsForInputs() {
         assertEquals(SideBoolMap.constructWith(d -> d == RelDir.FRONT), tableNot.getOutputsForInputs(SideBoolMap.getEmpty()));
@@ -58,6 +77,44 @@ class TruthTableTest {
         assertEquals(SideBoolMap.constructWith(d -> d == RelDir.FRONT), tableNand.getOutputsForInputs(SideBoolMap.constructWith(d -> d == RelDir.LEFT)));
     }
 
+    @Test
+    void getOutputMask() {
+        assertEquals(0b0001, tableNot.getOutputMask(0b0000));
+        assertEquals(0b0000, tableNot.getOutputMask(0b0100));
+        assertEquals(0b0001, tableNot.getOutputMask(0b1011)); // Non-input sides are ignored
+        assertEquals(0b0001, tableAdder.getOutputMask(0b0010));
+        assertEquals(0b0100, tableAdder.getOutputMask(0b1010));
+        assertEquals(0b0000, tableEmpty.getOutputMask(0b1111));
+
+        assertEquals(0b1010, tableAdder.getInputMask());
+        assertEquals(0b0101, tableAdder.getOutputSideMask());
+    }
+
+    @Test
+    void pack() {
+        for (TruthTable table : Arrays.asList(tableEmpty, tableNand, tableNot, tableAdder, tableOther)) {
+            assertTrue(table.isPackable());
+
+            TruthTable unpacked = TruthTable.unpack(table.pack());
+            assertEquals(table.getInputs(), unpacked.getInputs());
+            assertEquals(table.getOutputs(), unpacked.getOutputs());
+            assertEquals(table.getSignature(), unpacked.getSignature());
+            assertEquals(table.getSideLookup(), unpacked.getSideLookup());
+        }
+
+        assertNotEquals(tableNand.pack(), tableOther.pack());
+        assertThrows(IllegalArgumentException.class, () -> TruthTable.unpack(0b111));
+    }
+
+    @Test
+    void intern() {
+        TruthTable copy = TruthTable.fromBoolFunc(RelDir.BACK, RelDir.FRONT, l -> !l.get(0));
+
+        assertSame(TruthTable.intern(tableNot), TruthTable.intern(copy));
+        assertSame(TruthTable.intern(tableNot), TruthTable.fromPacked(tableNot.pack()));
+        assertSame(TruthTable.intern(tableNot).getEvaluator(), TruthTable.intern(copy).getEvaluator());
+    }
+
     @Test
     void hasInputOrOutput() {
         assertTrue(tableAdder.hasInputOrOutput(RelDir.FRONT));
@@ -110,10 +167,35 @@ class TruthTableTest {
         assertEquals(tableAdder.getSignature(), TruthTable.fromNBT(tableAdder.toNBT()).getSignature());
         assertEquals(tableEmpty.getSignature(), TruthTable.fromNBT(tableEmpty.toNBT()).getSignature());
 
-        CompoundTag tag = tableNand.toNBT();
+        Tag tag = tableNand.toNBT();
         assertEquals(tag, TruthTable.fromNBT(tag).toNBT());
 
         assertEquals("0->0;", TruthTable.fromNBT(new CompoundTag()).getSignature());
+        assertEquals("0->0;", TruthTable.fromNBT(null).getSignature());
+        assertEquals("0->0;", TruthTable.fromNBT(IntTag.valueOf(0)).getSignature());
+    }
+
+    @Test
+    void cachedNbt() {
+        assertSame(tableAdder.toNBT(), tableAdder.toNBT());
+
+        TruthTable malformed = new TruthTable(Arrays.asList(RelDir.LEFT, RelDir.LEFT), Arrays.asList(RelDir.FRONT), Arrays.asList(new BitSet()));
+        assertFalse(malformed.isPackable());
+        assertNotSame(malformed.toNBT(), malformed.toNBT());
+        assertEquals(malformed.toNBT(), malformed.toNBT());
+    }
+
+    @Test
+    void legacyNbtSerialization() {
+        assertInstanceOf(IntTag.class, tableAdder.toNBT());
+
+        CompoundTag legacy = tableAdder.toLegacyNBT();
+        assertEquals(tableAdder.getSignature(), TruthTable.fromNBT(legacy).getSignature());
+        assertEquals(tableAdder.getSideLookup(), TruthTable.fromNBT(legacy).getSideLookup());
+        assertEquals(tableAdder.toNBT(), TruthTable.fromNBT(legacy).toNBT());
+
+        assertEquals(legacy, tableAdder.toNBT(true));
+        assertEquals(tableAdder.toNBT(), tableAdder.toNBT(false));
     }
 
     @Test